@@ -0,0 +1,309 @@
+package main;
+
+import java.awt.*;
+import java.util.*;
+
+/*
+ * Arena puts several snakes on one board with many food items. Snake 0 can be the
+ * player's; the others are steered by a greedy bot. Each tick runs in stages over all
+ * the snakes at once, instead of asking every snake whether it hits every other:
+ * 1. The next heads go into structure-of-arrays int[] headX, headY
+ * 2. A HeadKernel batch finds the head cells, the heads off the board and the food hits
+ * 3. The tails of the snakes that do not eat leave the occupancy grid, then a second
+ * batch reads the grid under the heads: any snake there means a collision
+ * 4. Heads meeting on the same cell all die, so the result does not depend on the order
+ * of the snakes; everything else is done in index order with a seeded Random, so a
+ * seed always plays the same game
+ * The arena has no walls, portals or wrap-around.
+ */
+public class Arena {
+	private static final int INIT_LENGTH = 3;
+	private static final Color[] COLORS = {Color.BLACK, Color.RED.darker(), Color.ORANGE.darker(),
+			Color.MAGENTA.darker(), Color.PINK.darker(), Color.CYAN.darker(), Color.WHITE, Color.GRAY};
+
+	private final int columns, rows;
+	private final java.util.List<Snake> snakes = new ArrayList<Snake>();
+	private final HeadKernel kernel;
+	private final Random random;
+
+	//occupancy: 1 + the index of the snake on each cell, 0 if none
+	private final int[] grid;
+	//1 on the cells with a food item. The items are also listed in foodCells
+	private final int[] food;
+	private final int[] foodCells;
+	private int foodCount;
+
+	//structure-of-arrays state of the snakes, indexed like snakes
+	private final int[] headX, headY, cells, values, scores;
+	private final boolean[] alive, eats, dies;
+	private int aliveCount;
+
+	//head-to-head detection: the tick when a cell was last claimed, and by which snake
+	private final int[] claimTick, claimedBy;
+	private int tick;
+
+	//The first snake may be given (the player's), the others are created
+	public Arena(int columns, int rows, int count, int foodItems, Snake first, long seed) {
+		this(columns, rows, count, foodItems, first, seed, HeadKernel.create());
+	}
+
+	//With the given batch stage, to compare the implementations (KernelCheck)
+	Arena(int columns, int rows, int count, int foodItems, Snake first, long seed, HeadKernel kernel) {
+		if(count > columns || rows < 4 * INIT_LENGTH) {
+			throw new IllegalArgumentException(count + " snakes do not fit on a " + columns + "x" + rows + " board");
+		}
+		this.columns = columns;
+		this.rows = rows;
+		this.kernel = kernel;
+		this.random = new Random(seed);
+		grid = new int[columns * rows];
+		food = new int[columns * rows];
+		foodCells = new int[columns * rows];
+		claimTick = new int[columns * rows];
+		claimedBy = new int[columns * rows];
+		headX = new int[count];
+		headY = new int[count];
+		cells = new int[count];
+		values = new int[count];
+		scores = new int[count];
+		alive = new boolean[count];
+		eats = new boolean[count];
+		dies = new boolean[count];
+
+		//spread the snakes over the width, heading up and down in turn
+		for(int i = 0; i < count; ++i) {
+			Snake snake = (i == 0 && first != null) ? first : new Snake();
+			snake.setWrap(false);
+			snake.setColors(COLORS[i % COLORS.length], Color.GREEN);
+			int x = (int) ((i + 0.5) * columns / count);
+			boolean up = (i % 2 == 0);
+			int y = up ? rows / 2 - INIT_LENGTH : rows / 2 + INIT_LENGTH - 1;
+			snake.regenerate(x, y, INIT_LENGTH, up ? Snake.Direction.UP : Snake.Direction.DOWN);
+			snakes.add(snake);
+			alive[i] = true;
+			occupy(snake, i + 1);
+		}
+		aliveCount = count;
+		addFood(foodItems);
+	}
+
+	private void occupy(Snake snake, int value) {
+		int[] body = new int[snake.getLength()];
+		int n = snake.getCells(body, columns);
+		for(int k = 0; k < n; ++k) grid[body[k]] = value;
+	}
+
+	//Place items on random free cells, as many as there is room for
+	private void addFood(int items) {
+		for(int placed = 0; placed < items; ++placed) {
+			int cell = -1;
+			for(int i = 0; i < 32 && cell < 0; ++i) {
+				int c = random.nextInt(grid.length);
+				if(grid[c] == 0 && food[c] == 0) cell = c;
+			}
+			if(cell < 0) {
+				int start = random.nextInt(grid.length);
+				for(int i = 0; i < grid.length && cell < 0; ++i) {
+					int c = (start + i) % grid.length;
+					if(grid[c] == 0 && food[c] == 0) cell = c;
+				}
+			}
+			if(cell < 0) return; //the board is full
+			food[cell] = 1;
+			foodCells[foodCount++] = cell;
+		}
+	}
+
+	private void removeFood(int cell) {
+		food[cell] = 0;
+		for(int i = 0; i < foodCount; ++i) {
+			if(foodCells[i] == cell) {
+				foodCells[i] = foodCells[--foodCount];
+				return;
+			}
+		}
+	}
+
+	//Play one tick. The snakes without a direction in dirs (null, or dirs shorter than
+	//the number of snakes) are steered by the bot. Returns the number of snakes alive.
+	//The snakes must not be turned in any other way while they step: each moves in the
+	//direction captured here, onto the head cell checked for it
+	public int step(Snake.Direction[] dirs) {
+		int n = snakes.size();
+		++tick;
+		//1. the next heads
+		for(int i = 0; i < n; ++i) {
+			if(!alive[i]) {
+				headX[i] = -1;
+				headY[i] = -1;
+				continue;
+			}
+			Snake snake = snakes.get(i);
+			Snake.Direction dir = (dirs != null && i < dirs.length) ? dirs[i] : null;
+			snake.setDirection((dir != null) ? dir : botDirection(i));
+			Snake.Direction move = snake.getDirection();
+			headX[i] = snake.getHeadX() + BoardState.dx(move);
+			headY[i] = snake.getHeadY() + BoardState.dy(move);
+		}
+
+		//2. bounds and food, for all the heads
+		kernel.lookup(n, headX, headY, columns, rows, food, cells, values);
+		for(int i = 0; i < n; ++i) {
+			eats[i] = alive[i] && values[i] != 0;
+			dies[i] = alive[i] && cells[i] < 0;
+		}
+
+		//3. the tails move away first, then the heads must land on free cells
+		for(int i = 0; i < n; ++i) {
+			if(!alive[i] || eats[i]) continue;
+			Snake snake = snakes.get(i);
+			grid[snake.getTailY() * columns + snake.getTailX()] = 0;
+		}
+		kernel.lookup(n, headX, headY, columns, rows, grid, cells, values);
+		for(int i = 0; i < n; ++i) {
+			if(alive[i] && values[i] != 0) dies[i] = true;
+		}
+
+		//4. heads on the same cell
+		for(int i = 0; i < n; ++i) {
+			if(!alive[i] || cells[i] < 0) continue;
+			int cell = cells[i];
+			if(claimTick[cell] == tick) {
+				dies[i] = true;
+				dies[claimedBy[cell]] = true;
+			}else {
+				claimTick[cell] = tick;
+				claimedBy[cell] = i;
+			}
+		}
+
+		//move the survivors, clear the others
+		int eaten = 0;
+		for(int i = 0; i < n; ++i) {
+			if(!alive[i]) continue;
+			Snake snake = snakes.get(i);
+			if(dies[i]) {
+				alive[i] = false;
+				--aliveCount;
+				clear(snake, i + 1);
+				continue;
+			}
+			snake.update();
+			if(eats[i]) {
+				removeFood(cells[i]);
+				++scores[i];
+				++eaten;
+			}else {
+				snake.shrink();
+			}
+			grid[cells[i]] = i + 1;
+		}
+		addFood(eaten);
+		return aliveCount;
+	}
+
+	//Remove a dead snake from the grid, leaving the cells already taken by others
+	private void clear(Snake snake, int value) {
+		int[] body = new int[snake.getLength()];
+		int n = snake.getCells(body, columns);
+		for(int k = 0; k < n; ++k) {
+			if(grid[body[k]] == value) grid[body[k]] = 0;
+		}
+	}
+
+	//Head for the nearest food item, on a cell that is free now
+	private Snake.Direction botDirection(int i) {
+		Snake snake = snakes.get(i);
+		int x = snake.getHeadX(), y = snake.getHeadY();
+		int target = -1, nearest = Integer.MAX_VALUE;
+		for(int k = 0; k < foodCount; ++k) {
+			int distance = Math.abs(foodCells[k] % columns - x) + Math.abs(foodCells[k] / columns - y);
+			if(distance < nearest) {
+				nearest = distance;
+				target = foodCells[k];
+			}
+		}
+		Snake.Direction best = snake.getDirection();
+		int bestDistance = Integer.MAX_VALUE;
+		for(Snake.Direction dir : Snake.Direction.values()) {
+			if(dir == SnakeState.opposite(snake.getDirection())) continue;
+			int nx = x + BoardState.dx(dir), ny = y + BoardState.dy(dir);
+			if(nx < 0 || nx >= columns || ny < 0 || ny >= rows || grid[ny * columns + nx] != 0) continue;
+			int distance = (target < 0) ? 0 : Math.abs(target % columns - nx) + Math.abs(target / columns - ny);
+			if(distance < bestDistance) {
+				bestDistance = distance;
+				best = dir;
+			}
+		}
+		return best;
+	}
+
+	public int getSnakeCount() {
+		return snakes.size();
+	}
+
+	public boolean isAlive(int i) {
+		return alive[i];
+	}
+
+	public int getAliveCount() {
+		return aliveCount;
+	}
+
+	public int getScore(int i) {
+		return scores[i];
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	//The implementation of the batch stage in use
+	public HeadKernel getKernel() {
+		return kernel;
+	}
+
+	//Draw the food items and the snakes alive
+	public void draw(Graphics g, Tiles tiles) {
+		for(int k = 0; k < foodCount; ++k) {
+			tiles.draw(g, foodCells[k] % columns, foodCells[k] / columns, Color.BLUE, Tiles.RAISED);
+		}
+		for(int i = 0; i < snakes.size(); ++i) {
+			if(alive[i]) snakes.get(i).draw(g, tiles);
+		}
+	}
+
+	//Play a game with many snakes on a big board, then time the batch stage alone:
+	//"java [--add-modules jdk.incubator.vector] main.Arena [snakes] [ticks]", see VectorHeadKernel
+	public static void main(String[] args) {
+		int count = (args.length > 0) ? Integer.parseInt(args[0]) : 256;
+		int ticks = (args.length > 1) ? Integer.parseInt(args[1]) : 2000;
+		int size = Math.max(count, 40); //one column per snake at least
+		long begin = System.nanoTime();
+		Arena arena = new Arena(size, size, count, count * 2, null, 1);
+		for(int t = 0; t < ticks && arena.getAliveCount() > 0; ++t) arena.step(null);
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		System.out.printf("%d snakes on %dx%d: %d ticks in %.2f s (%.0f ticks/s), %d alive, scores %d %d%n",
+				count, size, size, arena.getTick(), seconds, arena.getTick() / seconds,
+				arena.getAliveCount(), arena.getScore(0), arena.getScore(count - 1));
+
+		Random random = new Random(1);
+		int[] headX = new int[count], headY = new int[count], cells = new int[count], values = new int[count];
+		int[] grid = new int[size * size];
+		for(int i = 0; i < grid.length; ++i) grid[i] = random.nextInt(4);
+		for(int i = 0; i < count; ++i) {
+			headX[i] = random.nextInt(size + 2) - 1;
+			headY[i] = random.nextInt(size + 2) - 1;
+		}
+		HeadKernel[] kernels = {new HeadKernel.Scalar(), HeadKernel.create()};
+		for(int round = 0; round < 3; ++round) {
+			for(HeadKernel kernel : kernels) {
+				int repeat = Math.max(1, 20000000 / count);
+				begin = System.nanoTime();
+				for(int r = 0; r < repeat; ++r) kernel.lookup(count, headX, headY, size, size, grid, cells, values);
+				double nanos = (double) (System.nanoTime() - begin) / repeat / count;
+				if(round == 2) System.out.printf("%s: %.2f ns per head%n", kernel, nanos);
+			}
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package main;
+
+import java.awt.*;
+import java.util.*;
+
+/*
+ * BoardState is an immutable snapshot of a game: the snake, the food item and the score.
+ * step() plays one tick with the same rules as GameMain and returns the next state,
+ * so bots can try moves ahead without touching the live game. States are cheap to
+ * keep around because consecutive states share their snake body (see SnakeState).
+ * An optional Level adds walls and portals to the board. In wrap-around mode the head
+ * leaving the board comes back on the opposite edge.
+ */
+public final class BoardState implements BoardView {
+	private final SnakeState snake;
+	private final int foodX, foodY;
+	private final int score;
+	private final boolean over;
+	private final Level level; //null for an open pit
+	private final boolean wrap;
+
+	public BoardState(SnakeState snake, int foodX, int foodY, int score, boolean over) {
+		this(snake, foodX, foodY, score, over, null);
+	}
+
+	public BoardState(SnakeState snake, int foodX, int foodY, int score, boolean over, Level level) {
+		this(snake, foodX, foodY, score, over, level, false);
+	}
+
+	public BoardState(SnakeState snake, int foodX, int foodY, int score, boolean over, Level level,
+			boolean wrap) {
+		this.snake = snake;
+		this.foodX = foodX;
+		this.foodY = foodY;
+		this.score = score;
+		this.over = over;
+		this.level = level;
+		this.wrap = wrap;
+	}
+
+	//The given view if it is a BoardState already, else a snapshot of it
+	public static BoardState from(BoardView view) {
+		if(view instanceof BoardState) return (BoardState) view;
+		int[] cells = new int[view.getLength()];
+		int n = view.getCells(cells);
+		SnakeState snake = SnakeState.of((n == cells.length) ? cells : Arrays.copyOf(cells, n),
+				view.getDirection(), view.getColumns(), view.getRows());
+		return new BoardState(snake, view.getFoodX(), view.getFoodY(), view.getScore(), false,
+				view.getLevel(), view.isWrap());
+	}
+
+	//Snapshot the live game objects
+	public static BoardState of(Snake snake, Food food, int score) {
+		return of(snake, food, score, null);
+	}
+
+	public static BoardState of(Snake snake, Food food, int score, Level level) {
+		return new BoardState(SnakeState.of(snake), food.getX(), food.getY(), score, false, level,
+				snake.isWrap());
+	}
+
+	public SnakeState getSnake() {
+		return snake;
+	}
+
+	@Override
+	public int getHeadX() {
+		return snake.getHeadX();
+	}
+
+	@Override
+	public int getHeadY() {
+		return snake.getHeadY();
+	}
+
+	@Override
+	public Snake.Direction getDirection() {
+		return snake.getDirection();
+	}
+
+	@Override
+	public int getLength() {
+		return snake.getLength();
+	}
+
+	@Override
+	public boolean isBody(int x, int y) {
+		return snake.contains(x, y);
+	}
+
+	@Override
+	public int getCells(int[] out) {
+		return snake.getCells(out);
+	}
+
+	@Override
+	public boolean isWall(int x, int y) {
+		return level != null && level.isWall(x, y);
+	}
+
+	public int getFoodX() {
+		return foodX;
+	}
+
+	public int getFoodY() {
+		return foodY;
+	}
+
+	public int getScore() {
+		return score;
+	}
+
+	public int getColumns() {
+		return snake.getColumns();
+	}
+
+	public int getRows() {
+		return snake.getRows();
+	}
+
+	@Override
+	public boolean isWrap() {
+		return wrap;
+	}
+
+	//The walls and portals, null for an open pit
+	@Override
+	public Level getLevel() {
+		return level;
+	}
+
+	//Returns true if the game has ended
+	public boolean isOver() {
+		return over;
+	}
+
+	//Returns true if moving in the given direction does not end the game on this tick
+	public boolean isSafe(Snake.Direction dir) {
+		dir = snake.turn(dir);
+		int cell = nextCell(dir);
+		if(cell < 0) return false;
+		if(level != null) {
+			if(level.getCell(cell) == Level.WALL) return false;
+			int exit = level.portalExit(cell);
+			if(exit >= 0) {
+				if(snake.hitsBody(cell, false)) return false;
+				return !snake.moveTo(cell, dir, false).hitsBody(exit, exit == foodY * getColumns() + foodX);
+			}
+		}
+		boolean eat = (cell == foodY * getColumns() + foodX);
+		return !snake.hitsBody(cell, eat);
+	}
+
+	//Play one tick: move in the given direction (180 degree turns are ignored),
+	//eat the food item if it is hit, then check the walls and the body.
+	//A head entering a portal comes out of the other end on the same tick, the body
+	//goes through both portal cells
+	public BoardState step(Snake.Direction dir, Random random) {
+		if(over) return this;
+		dir = snake.turn(dir);
+		int cell = nextCell(dir);
+		if(cell < 0) return ended();
+		SnakeState current = snake;
+		if(level != null) {
+			if(level.getCell(cell) == Level.WALL) return ended();
+			int exit = level.portalExit(cell);
+			if(exit >= 0) {
+				if(snake.hitsBody(cell, false)) return ended();
+				current = snake.moveTo(cell, dir, false);
+				cell = exit;
+			}
+		}
+		boolean eat = (cell == foodY * getColumns() + foodX);
+		if(current.hitsBody(cell, eat)) return ended();
+		SnakeState moved = current.moveTo(cell, dir, eat);
+		if(!eat) return new BoardState(moved, foodX, foodY, score, false, level, wrap);
+
+		int food = placeFood(moved, level, random);
+		if(food < 0) {
+			//no room left for a food item, the board is full
+			return new BoardState(moved, -1, -1, score + 1, true, level, wrap);
+		}
+		return new BoardState(moved, food % getColumns(), food / getColumns(), score + 1, false, level, wrap);
+	}
+
+	private BoardState ended() {
+		return new BoardState(snake, foodX, foodY, score, true, level, wrap);
+	}
+
+	//The cell the head moves to in the given direction, -1 if it leaves the board
+	int nextCell(Snake.Direction dir) {
+		int x = snake.getHeadX() + dx(dir);
+		int y = snake.getHeadY() + dy(dir);
+		if(wrap) return wrap(y, getRows()) * getColumns() + wrap(x, getColumns());
+		if(x < 0 || x >= getColumns() || y < 0 || y >= getRows()) return -1;
+		return y * getColumns() + x;
+	}
+
+	static int placeFood(SnakeState snake, Random random) {
+		return placeFood(snake, null, random);
+	}
+
+	static int placeFood(SnakeState snake, Level level, Random random) {
+		return placeFood(snake, level, random, null);
+	}
+
+	//Pick a random free cell for a food item. On a level, any cell allowed by
+	//Level.isFoodCell(). In an open pit, the same area as Food.regenerate(), and once that
+	//area is full anywhere on the board. The cells of the items (may be null) are not free.
+	//Returns -1 if there is no free cell left
+	static int placeFood(SnakeState snake, Level level, Random random, FoodField items) {
+		if(level != null) {
+			int cells = snake.getColumns() * snake.getRows();
+			for(int i = 0; i < 32; ++i) {
+				int cell = random.nextInt(cells);
+				if(level.isFoodCell(cell) && isFree(cell, snake, items)) return cell;
+			}
+			int free = 0;
+			for(int cell = 0; cell < cells; ++cell) {
+				if(level.isFoodCell(cell) && isFree(cell, snake, items)) ++free;
+			}
+			if(free == 0) return -1;
+			int pick = random.nextInt(free);
+			for(int cell = 0; cell < cells; ++cell) {
+				if(level.isFoodCell(cell) && isFree(cell, snake, items) && pick-- == 0) return cell;
+			}
+			return -1;
+		}
+		int columns = snake.getColumns();
+		int rows = snake.getRows();
+		int width = columns - 4;
+		int height = rows - 4;
+		//a few random tries are enough while the board is mostly free
+		for(int i = 0; i < 32; ++i) {
+			int x = random.nextInt(width) + 2;
+			int y = random.nextInt(height) + 2;
+			if(isFree(y * columns + x, snake, items)) return y * columns + x;
+		}
+		//otherwise pick uniformly among the free cells
+		int free = 0;
+		for(int y = 2; y < rows - 2; ++y) {
+			for(int x = 2; x < columns - 2; ++x) {
+				if(isFree(y * columns + x, snake, items)) ++free;
+			}
+		}
+		if(free > 0) {
+			int pick = random.nextInt(free);
+			for(int y = 2; y < rows - 2; ++y) {
+				for(int x = 2; x < columns - 2; ++x) {
+					if(!isFree(y * columns + x, snake, items)) continue;
+					if(pick-- == 0) return y * columns + x;
+				}
+			}
+		}
+		//the inside is full, use the border cells
+		free = 0;
+		for(int cell = 0; cell < columns * rows; ++cell) {
+			if(isFree(cell, snake, items)) ++free;
+		}
+		if(free == 0) return -1;
+		int pick = random.nextInt(free);
+		for(int cell = 0; cell < columns * rows; ++cell) {
+			if(!isFree(cell, snake, items)) continue;
+			if(pick-- == 0) return cell;
+		}
+		return -1;
+	}
+
+	private static boolean isFree(int cell, SnakeState snake, FoodField items) {
+		return !snake.containsCell(cell) && (items == null || !items.containsCell(cell));
+	}
+
+	static int dx(Snake.Direction dir) {
+		return (dir == Snake.Direction.RIGHT) ? 1 : (dir == Snake.Direction.LEFT) ? -1 : 0;
+	}
+
+	static int dy(Snake.Direction dir) {
+		return (dir == Snake.Direction.DOWN) ? 1 : (dir == Snake.Direction.UP) ? -1 : 0;
+	}
+
+	//Bring a coordinate that is at most one cell off the board back on the opposite edge.
+	//Branch-free: the sign bit of v (or of size - 1 - v) selects whether size is added
+	//(or subtracted), so the hot path has no mispredicted jumps at the edges
+	static int wrap(int v, int size) {
+		v += size & (v >> 31);
+		v -= size & ((size - 1 - v) >> 31);
+		return v;
+	}
+
+	//Draw the snake and the food item, the same way as the game objects
+	public void draw(Graphics g) {
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+
+	public void draw(Graphics g, Tiles tiles) {
+		snake.draw(g, tiles);
+		if(foodX >= 0) tiles.draw(g, foodX, foodY, Color.BLUE, Tiles.RAISED);
+	}
+
+	// For debugging
+	public String toString() {
+		return "BoardState[" + snake + ", food=(" + foodX + "," + foodY + "), score=" + score
+				+ (over ? ", over" : "") + "]";
+	}
+}
@@ -0,0 +1,49 @@
+package main;
+
+/*
+ * BoardView is the read-only board given to a SnakeController every tick.
+ * Cells are addressed by (x,y), x from 0 to getColumns() - 1, y from 0 to getRows() - 1.
+ */
+public interface BoardView {
+	int getColumns();
+
+	int getRows();
+
+	//The X, Y coordinate of the cell that contains the snake's head
+	int getHeadX();
+
+	int getHeadY();
+
+	//The current direction of the snake's head
+	Snake.Direction getDirection();
+
+	//Number of cells of the snake
+	int getLength();
+
+	//Returns true if the snake contains the given (x,y) cell
+	boolean isBody(int x, int y);
+
+	//Copy the cells of the snake into out, head first, as y * columns + x
+	//Returns the number of cells, out must have room for getLength() of them
+	int getCells(int[] out);
+
+	//Returns true if the given (x,y) cell is a wall of the level
+	boolean isWall(int x, int y);
+
+	//The X, Y coordinate of the food item, -1 if there is none
+	int getFoodX();
+
+	int getFoodY();
+
+	int getScore();
+
+	//Returns true if the edges of the board lead to the opposite edges
+	default boolean isWrap() {
+		return false;
+	}
+
+	//The walls and portals of the board, null for an open pit
+	default Level getLevel() {
+		return null;
+	}
+}
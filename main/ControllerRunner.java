@@ -0,0 +1,117 @@
+package main;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/*
+ * ControllerRunner asks a SnakeController for its direction on a dedicated thread, and
+ * waits for it until a hard deadline. A controller that overruns does not stall the
+ * game loop: the snake keeps its current direction and the overrun is counted. While a
+ * controller is still busy with an earlier tick, it is not asked again (also an overrun).
+ */
+public class ControllerRunner {
+	private final SnakeController controller;
+	private final ExecutorService executor;
+	//IDLE, or SUBMITTED until the controller thread picks the tick up, then RUNNING
+	private static final int IDLE = 0, SUBMITTED = 1, RUNNING = 2;
+	private final AtomicInteger busy = new AtomicInteger(IDLE);
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong overruns = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+
+	public ControllerRunner(final SnakeController controller) {
+		this.controller = controller;
+		this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "controller-" + controller.getName());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	public SnakeController getController() {
+		return controller;
+	}
+
+	//Ask for the next direction, waiting at most deadlineNanos.
+	//Returns null if the controller overran or failed: keep the current direction
+	public Snake.Direction nextDirection(final BoardView board, final long deadlineNanos) {
+		calls.incrementAndGet();
+		if(!busy.compareAndSet(IDLE, SUBMITTED)) {
+			overruns.incrementAndGet();
+			return null;
+		}
+		Future<Snake.Direction> future;
+		try {
+			future = executor.submit(new Callable<Snake.Direction>() {
+				@Override
+				public Snake.Direction call() {
+					//cancelled before it could start
+					if(!busy.compareAndSet(SUBMITTED, RUNNING)) return null;
+					try {
+						return controller.nextDirection(board, deadlineNanos);
+					}finally {
+						busy.set(IDLE);
+					}
+				}
+			});
+		}catch(RejectedExecutionException e) {
+			busy.set(IDLE);
+			return null;
+		}
+		try {
+			return future.get(deadlineNanos, TimeUnit.NANOSECONDS);
+		}catch(TimeoutException e) {
+			overruns.incrementAndGet();
+			//drop the answer, but let the controller finish: an interrupt could break
+			//its I/O (a cache being written). It stays busy until it is done
+			future.cancel(false);
+			busy.compareAndSet(SUBMITTED, IDLE); //unless it had not started yet
+			return null;
+		}catch(ExecutionException e) {
+			failures.incrementAndGet();
+			e.getCause().printStackTrace();
+			return null;
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	//Number of ticks the controller was asked for a direction
+	public long getCalls() {
+		return calls.get();
+	}
+
+	//Number of ticks the controller did not answer in time
+	public long getOverruns() {
+		return overruns.get();
+	}
+
+	//Number of ticks the controller threw an exception
+	public long getFailures() {
+		return failures.get();
+	}
+
+	//Stop the controller thread once the controller has finished its tick and is closed
+	public void shutdown() {
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					controller.close();
+				}
+			});
+		}catch(RejectedExecutionException e) {
+			//already shut down
+		}
+		executor.shutdown();
+	}
+
+	public String toString() {
+		return controller + " (" + overruns.get() + " overruns)";
+	}
+}
@@ -25,6 +25,44 @@ public class Food {
 		y = rand.nextInt(GameMain.ROWS - 4) + 2;
 		
 	}
+	
+	//Regenerate a food item on a cell not covered by the snake. Returns false if the
+	//snake covers the whole board
+	public boolean regenerate(SnakeView snake) {
+		return regenerate(snake, null);
+	}
+	
+	//Regenerate a food item on a cell of the level that the snake can reach
+	public boolean regenerate(SnakeView snake, Level level) {
+		return regenerate(snake, level, null);
+	}
+	
+	//Regenerate a food item on a cell of the level that is free of the snake and of the
+	//items of the field (may be null)
+	public boolean regenerate(SnakeView snake, Level level, FoodField field) {
+		boolean items = (field != null && field.size() > 0);
+		//a few random tries are enough while the board is mostly free
+		for(int i = 0; i < 32 && level == null; ++i) {
+			regenerate();
+			if(!snake.contains(x, y) && !(items && field.contains(x, y))) return true;
+		}
+		//otherwise pick among the free cells, so that a full board does not loop forever
+		SnakeState body = SnakeState.of(snake);
+		int cell = BoardState.placeFood(body, level, rand, items ? field : null);
+		if(cell < 0 && items) {
+			//only the cells of the items are left: the food item takes the place of one
+			cell = BoardState.placeFood(body, level, rand);
+		}
+		if(cell < 0) {
+			x = -1;
+			y = -1;
+			return false;
+		}
+		x = cell % GameMain.COLUMNS;
+		y = cell / GameMain.COLUMNS;
+		if(items) field.eatAt(x, y);
+		return true;
+	}
 	//Return the x, y coordinate of the cell that contains this food item
 	public int getX() {
 		return x;
@@ -36,12 +74,13 @@ public class Food {
 	
 	//Draw itself
 	public void draw(Graphics g) {
-		g.setColor(color);
-		g.fill3DRect(x * GameMain.CELL_SIZE,
-				y* GameMain.CELL_SIZE, 
-				 GameMain.CELL_SIZE,
-				 GameMain.CELL_SIZE, 
-				true);
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+	
+	//Draw itself at the cell size of the tiles
+	public void draw(Graphics g, Tiles tiles) {
+		if(x < 0) return; //no room was left for it
+		tiles.draw(g, x, y, color, Tiles.RAISED);
 	}
 	
 	
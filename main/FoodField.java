@@ -0,0 +1,163 @@
+package main;
+
+import java.awt.*;
+import java.util.*;
+
+/*
+ * FoodField holds many food items at once (feeding frenzy mode, big boards).
+ * 1. A grid gives the item on each cell, so checking the head cell is O(1)
+ * 2. The items are also kept in a dense array (removal swaps the last item in), so
+ * that a nearly empty board does not scan the grid
+ * 3. Eaten items are respawned together once per tick, with one snapshot of the snake
+ * 4. draw() only visits the cells inside the clip area
+ * Cells are numbered y * columns + x.
+ */
+public class FoodField {
+	private final int columns, rows;
+	//index in cells[] of the item on each cell, -1 if none
+	private final int[] itemAt;
+	//cell of each item, the first count entries are used
+	private final int[] cells;
+	private volatile int count;
+	//number of items eaten since the last respawn
+	private int eaten;
+	private Color color = Color.BLUE;
+	private Random rand = new Random();
+
+	public FoodField(int columns, int rows) {
+		this.columns = columns;
+		this.rows = rows;
+		itemAt = new int[columns * rows];
+		Arrays.fill(itemAt, -1);
+		cells = new int[columns * rows];
+	}
+
+	//Number of items on the board
+	public int size() {
+		return count;
+	}
+
+	//Returns true if there is an item on the (x,y) cell
+	public boolean contains(int x, int y) {
+		if(x < 0 || x >= columns || y < 0 || y >= rows) return false;
+		return itemAt[y * columns + x] >= 0;
+	}
+
+	//Returns true if there is an item on the given cell
+	boolean containsCell(int cell) {
+		return itemAt[cell] >= 0;
+	}
+
+	//Put an item on a free cell. Returns false if the cell already has one
+	public boolean add(int cell) {
+		if(itemAt[cell] >= 0) return false;
+		cells[count] = cell;
+		itemAt[cell] = count;
+		++count;
+		return true;
+	}
+
+	private void remove(int cell) {
+		int index = itemAt[cell];
+		int last = cells[count - 1];
+		//move the last item into the hole
+		cells[index] = last;
+		itemAt[last] = index;
+		itemAt[cell] = -1;
+		--count;
+	}
+
+	//Eat the item on the (x,y) cell if there is one. It comes back on the next respawn()
+	public boolean eatAt(int x, int y) {
+		if(!contains(x, y)) return false;
+		remove(y * columns + x);
+		++eaten;
+		return true;
+	}
+
+	//Remove all the items
+	public void clear() {
+		for(int i = 0; i < count; ++i) itemAt[cells[i]] = -1;
+		count = 0;
+		eaten = 0;
+	}
+
+	//Clear the board and place the given number of items away from the snake and the food
+	public void fill(int items, SnakeView snake, Food food, Level level) {
+		clear();
+		eaten = items;
+		respawn(snake, food, level);
+	}
+
+	//Place again every item eaten since the last call, on free cells
+	//Returns the number of items that found no room
+	public int respawn(SnakeView snake, Food food, Level level) {
+		if(eaten == 0) return 0;
+		SnakeState body = SnakeState.of(snake, columns, rows);
+		int foodCell = (food.getX() < 0) ? -1 : food.getY() * columns + food.getX();
+		while(eaten > 0) {
+			int cell = freeCell(body, foodCell, level);
+			if(cell < 0) break;
+			add(cell);
+			--eaten;
+		}
+		int missing = eaten;
+		eaten = 0;
+		return missing;
+	}
+
+	private boolean isFree(int cell, SnakeState body, int foodCell, Level level) {
+		return itemAt[cell] < 0 && cell != foodCell && !body.containsCell(cell)
+				&& (level == null || level.isFoodCell(cell));
+	}
+
+	//A random free cell, or -1 if the board is full
+	private int freeCell(SnakeState body, int foodCell, Level level) {
+		for(int i = 0; i < 32; ++i) {
+			int cell = rand.nextInt(itemAt.length);
+			if(isFree(cell, body, foodCell, level)) return cell;
+		}
+		//a crowded board: the first free cell from a random start
+		int start = rand.nextInt(itemAt.length);
+		for(int i = 0; i < itemAt.length; ++i) {
+			int cell = (start + i) % itemAt.length;
+			if(isFree(cell, body, foodCell, level)) return cell;
+		}
+		return -1;
+	}
+
+	//Draw the items inside the clip area
+	public void draw(Graphics g) {
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+
+	//Draw the items inside the clip area, at the cell size of the tiles
+	public void draw(Graphics g, Tiles tiles) {
+		int n = count;
+		if(n == 0) return;
+		int size = tiles.getCellSize();
+		Rectangle clip = g.getClipBounds();
+		if(clip == null) clip = new Rectangle(0, 0, columns * size, rows * size);
+		int x0 = Math.max(0, Math.floorDiv(clip.x, size));
+		int y0 = Math.max(0, Math.floorDiv(clip.y, size));
+		int x1 = Math.min(columns - 1, Math.floorDiv(clip.x + clip.width, size));
+		int y1 = Math.min(rows - 1, Math.floorDiv(clip.y + clip.height, size));
+		if(x1 < x0 || y1 < y0) return;
+
+		if((long) (x1 - x0 + 1) * (y1 - y0 + 1) <= n) {
+			//fewer cells in view than items: look the cells up in the grid
+			for(int y = y0; y <= y1; ++y) {
+				for(int x = x0; x <= x1; ++x) {
+					if(itemAt[y * columns + x] >= 0) tiles.draw(g, x, y, color, Tiles.RAISED);
+				}
+			}
+		}else {
+			//fewer items than cells in view: go through the items
+			for(int i = 0; i < n; ++i) {
+				int x = cells[i] % columns;
+				int y = cells[i] / columns;
+				if(x >= x0 && x <= x1 && y >= y0 && y <= y1) tiles.draw(g, x, y, color, Tiles.RAISED);
+			}
+		}
+	}
+}
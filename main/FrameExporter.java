@@ -0,0 +1,239 @@
+package main;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.imageio.ImageIO;
+
+/*
+ * FrameExporter draws the game objects into offscreen images, without a display, and
+ * streams them out either as a numbered PNG sequence or as one raw RGB frame stream.
+ * 1. Run with -Djava.awt.headless=true on servers without a screen
+ * 2. Call exportFrame() once per game tick, from the thread that updates the game objects
+ * 3. Frames are encoded in parallel on a thread pool. Only a fixed number of images exist,
+ * so exportFrame() blocks when the encoders fall behind (backpressure, bounded memory)
+ * 4. Call close() to wait for the pending frames and release the threads
+ * main() records a game played by a bot, see below.
+ */
+public class FrameExporter implements Closeable {
+	public static enum Format {
+		PNG, //one frame_000000.png file per frame in the output directory
+		RAW_RGB //all frames in one file, 3 bytes (r,g,b) per pixel, row by row
+	}
+
+	private final File output; //directory for PNG, file for RAW_RGB
+	private final Format format;
+	private final int width, height;
+	private final int maxPending;
+
+	//images free to draw into. Taking from it blocks when every image is being encoded
+	private final BlockingQueue<BufferedImage> freeImages;
+	//encoded frames in frame order, so that the raw stream is written in order
+	private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+	private final ExecutorService encoders;
+	private OutputStream rawOut;
+	private int frameCount;
+
+	//Export to the given output using all the cores and a queue of 2 frames per core
+	public FrameExporter(File output, Format format) throws IOException {
+		this(output, format, Runtime.getRuntime().availableProcessors(),
+				2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	public FrameExporter(File output, Format format, int threads, int queueCapacity) throws IOException {
+		this.output = output;
+		this.format = format;
+		this.width = GameMain.CANVAS_WIDTH;
+		this.height = GameMain.CANVAS_HEIGHT;
+		this.maxPending = 2 * queueCapacity;
+
+		if(format == Format.PNG) {
+			if(!output.isDirectory() && !output.mkdirs()) {
+				throw new IOException("Cannot create directory " + output);
+			}
+		}else {
+			rawOut = new BufferedOutputStream(new FileOutputStream(output), 1 << 16);
+		}
+
+		freeImages = new ArrayBlockingQueue<BufferedImage>(queueCapacity);
+		for(int i = 0; i < queueCapacity; ++i) {
+			freeImages.add(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB));
+		}
+
+		encoders = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "frame-encoder-" + (count++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	//Draw the current snake and food item as the next frame
+	//Blocks while all the images are waiting to be encoded
+	public void exportFrame(SnakeView snake, Food food, int score) throws IOException {
+		BufferedImage image = takeImage();
+		Graphics g = image.createGraphics();
+		try {
+			drawFrame(g, snake, food, score);
+		}finally {
+			g.dispose();
+		}
+		submit(image);
+	}
+
+	//Draw a simulated board as the next frame, for games played without the game screen
+	public void exportFrame(BoardState board) throws IOException {
+		BufferedImage image = takeImage();
+		Graphics g = image.createGraphics();
+		try {
+			drawFrame(g, board);
+		}finally {
+			g.dispose();
+		}
+		submit(image);
+	}
+
+	private BufferedImage takeImage() throws IOException {
+		try {
+			return freeImages.take();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a free frame");
+		}
+	}
+
+	private void submit(final BufferedImage image) throws IOException {
+		final int frame = frameCount++;
+		pending.add(encoders.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() throws IOException {
+				try {
+					return encode(image, frame);
+				}finally {
+					freeImages.add(image); //the image can be drawn again
+				}
+			}
+		}));
+
+		//write out what is done, and wait for the oldest frame if too many are queued
+		while(!pending.isEmpty() && (pending.peek().isDone() || pending.size() > maxPending)) {
+			writeOldest();
+		}
+	}
+
+	//Draw the game objects the same way as the game screen does
+	static void drawFrame(Graphics g, SnakeView snake, Food food, int score) {
+		g.setColor(GameMain.PIT_COLOR);
+		g.fillRect(0, 0, GameMain.CANVAS_WIDTH, GameMain.CANVAS_HEIGHT);
+		snake.draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+		food.draw(g);
+
+		g.setFont(new Font("Dialog", Font.PLAIN, 14));
+		g.setColor(Color.BLACK);
+		g.drawString("Score: " + score, 5, 25);
+	}
+
+	static void drawFrame(Graphics g, BoardState board) {
+		g.setColor(GameMain.PIT_COLOR);
+		g.fillRect(0, 0, GameMain.CANVAS_WIDTH, GameMain.CANVAS_HEIGHT);
+		if(board.getLevel() != null) board.getLevel().draw(g);
+		board.draw(g);
+
+		g.setFont(new Font("Dialog", Font.PLAIN, 14));
+		g.setColor(Color.BLACK);
+		g.drawString("Score: " + board.getScore(), 5, 25);
+	}
+
+	//Encode one frame. PNG frames are written here directly, raw frames are returned
+	//so that they can be written in order
+	private byte[] encode(BufferedImage image, int frame) throws IOException {
+		if(format == Format.PNG) {
+			File file = new File(output, String.format("frame_%06d.png", frame));
+			if(!ImageIO.write(image, "png", file)) {
+				throw new IOException("No PNG writer available");
+			}
+			return null;
+		}
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		byte[] rgb = new byte[pixels.length * 3];
+		for(int i = 0, j = 0; i < pixels.length; ++i) {
+			int p = pixels[i];
+			rgb[j++] = (byte) (p >> 16);
+			rgb[j++] = (byte) (p >> 8);
+			rgb[j++] = (byte) p;
+		}
+		return rgb;
+	}
+
+	private void writeOldest() throws IOException {
+		byte[] rgb;
+		try {
+			rgb = pending.poll().get();
+		}catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while encoding a frame");
+		}catch(ExecutionException e) {
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException("Cannot encode frame", e.getCause());
+		}
+		if(rgb != null) rawOut.write(rgb);
+	}
+
+	//Number of frames passed to exportFrame() so far
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	//Wait for all the pending frames, then release the encoder threads and the file
+	@Override
+	public void close() throws IOException {
+		try {
+			while(!pending.isEmpty()) {
+				writeOldest();
+			}
+		}finally {
+			encoders.shutdown();
+			if(rawOut != null) rawOut.close();
+		}
+	}
+
+	//Record a game played by the HamiltonianBot, one frame per tick until it ends:
+	//"java -Djava.awt.headless=true main.FrameExporter <output> [png|raw] [ticks] [seed]"
+	public static void main(String[] args) throws Exception {
+		if(args.length < 1) {
+			System.err.println("Usage: java -Djava.awt.headless=true main.FrameExporter <output> [png|raw] [ticks] [seed]");
+			System.exit(2);
+		}
+		Format format = (args.length > 1 && args[1].equalsIgnoreCase("raw")) ? Format.RAW_RGB : Format.PNG;
+		int ticks = (args.length > 2) ? Integer.parseInt(args[2]) : 1000;
+		Random random = new Random((args.length > 3) ? Long.parseLong(args[3]) : 1);
+
+		Snake snake = new Snake();
+		snake.regenerate();
+		Food food = new Food();
+		food.regenerate(snake);
+		BoardState board = BoardState.of(snake, food, 0);
+		SnakeController bot = new HamiltonianBot();
+		long begin = System.nanoTime();
+		FrameExporter exporter = new FrameExporter(new File(args[0]), format);
+		try {
+			exporter.exportFrame(board);
+			for(int t = 0; t < ticks && !board.isOver(); ++t) {
+				board = board.step(bot.nextDirection(board), random);
+				exporter.exportFrame(board);
+			}
+		}finally {
+			exporter.close();
+		}
+		double seconds = (System.nanoTime() - begin) / 1e9;
+		System.out.printf("%d frames of %dx%d in %.2f s (%.0f frames/s), score %d%n",
+				exporter.getFrameCount(), GameMain.CANVAS_WIDTH, GameMain.CANVAS_HEIGHT, seconds,
+				exporter.getFrameCount() / seconds, board.getScore());
+	}
+}
@@ -19,10 +19,16 @@ public class GameMain extends JPanel{
 	//width and height of the game screen
 	static final int CANVAS_WIDTH = COLUMNS * CELL_SIZE;
 	static final int CANVAS_HEIGHT = ROWS * CELL_SIZE;
+	//number of extra food items in feeding frenzy mode
+	static final int FRENZY_ITEMS = 200;
 	//number of game update per second = 3;
 	static final int UPDATE_PER_SEC = 3;
 	//per nanoseconds
 	static final long UPDATE_PERIOD_NSEC = 1000000000L / UPDATE_PER_SEC;
+	//current update period, shorter to run the game faster (soak test)
+	static volatile long updatePeriodNsec = UPDATE_PERIOD_NSEC;
+	//background color of the pit
+	static final Color PIT_COLOR = Color.decode("0x3F919E");
 	
 	
 	//Enumeration for the statas of the game
@@ -34,23 +40,66 @@ public class GameMain extends JPanel{
 	static JMenuBar menuBar;
 	
 	// current state of the game
-	static GameState state;
+	static volatile GameState state;
 	
 	//Define instance variables for the game objects
 	private Food food;
 	private Snake snake;
+	private PowerUps powerUps;
+	//the extra food items of the feeding frenzy mode
+	private FoodField foodField;
+	private volatile boolean frenzy;
+	//the edges of the pit lead to the opposite edges
+	private volatile boolean wrap;
+	//several snakes on the board, the player's is the first. null outside of arena mode
+	private volatile boolean arenaMode;
+	private volatile Arena arena;
+	private final Snake.Direction[] arenaDirections = new Snake.Direction[1];
+	//the last arrow key pressed in arena mode, taken by the next step of the arena
+	private volatile Snake.Direction arenaKey;
+	static final int ARENA_SNAKES = 8;
+	static final int ARENA_FOOD = 30;
+	//index in ZOOMS, 0 fits the whole board in the window
+	private volatile int zoom;
+	private static final double[] ZOOMS = {1, 1.5, 2, 3, 4};
 	
 	// Handle for the custom drawing panel and UI components
 	private GameCanvas pit;
 	private ControlPanel control;
 	private JLabel lblScore;
 	int score = 0;
+	//the snake has filled the whole board
+	private boolean won;
+	//number of updates since the program started
+	private volatile long tick;
+	
+	//the one thread running the game loop, and the pending request to start a game
+	private Thread gameThread;
+	private final Object startLock = new Object();
+	private boolean startRequested;
+	
+	//runs the controller playing instead of the arrow keys, null for manual play
+	private volatile ControllerRunner controllerRunner;
+	//board shared with a bot process (-Dsnake.shm=<file>), null if there is none
+	private SharedBoard sharedBoard;
+	//walls and portals of the board, null for an open pit
+	private volatile Level level;
 	
 	// Constructor to init the UI components and game object
 	public GameMain() {
 		//init the game objects
 		gameInit();
 		
+		//publish the board for an out-of-process bot if asked to
+		String sharedFile = System.getProperty("snake.shm");
+		if(sharedFile != null) {
+			try {
+				sharedBoard = SharedBoard.create(new java.io.File(sharedFile), COLUMNS, ROWS);
+			}catch(java.io.IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
 		// create UI components
 		setLayout(new BorderLayout());
 		//drawing panel
@@ -75,100 +124,238 @@ public class GameMain extends JPanel{
 		//Allocate a new snake and a food item, do not regenerate
 		snake = new Snake();
 		food = new Food();
+		powerUps = new PowerUps();
+		foodField = new FoodField(COLUMNS, ROWS);
 		state = GameState.INITIALIZED;
 	}
 	
 	//shutdown the game, clean up code that runs only once
 	public void gameShutdown() {
-		
+		state = GameState.DESTROYED;
+		ControllerRunner runner = controllerRunner;
+		if(runner != null) runner.shutdown();
+		if(sharedBoard != null) {
+			try {
+				sharedBoard.close();
+			}catch(java.io.IOException e) {
+				e.printStackTrace();
+			}
+		}
+		synchronized(startLock) {
+			if(gameThread != null) gameThread.interrupt();
+			startLock.notifyAll();
+		}
 	}
 	
 	// to start and restart the game
 	public void gameStart() {
-		// Create a new thread
-		Thread gameThread = new Thread() {
-			//Override run() to provide the running behavior of this thread
-			public void run() {
-				gameLoop();
+		synchronized(startLock) {
+			// Create the game thread the first time only, it is reused by every restart
+			if(gameThread == null) {
+				gameThread = new Thread("game-loop") {
+					//Override run() to provide the running behavior of this thread
+					public void run() {
+						gameThreadRun();
+					}
+				};
+				gameThread.setDaemon(true);
+				//Start the thread.start() calls run, which in turn calls gameLoop()
+				gameThread.start();
+			}
+			startRequested = true;
+			startLock.notifyAll();
+		}
+	}
+	
+	// Wait for a start request, play one game, then wait again until shut down
+	private void gameThreadRun() {
+		while(state != GameState.DESTROYED) {
+			synchronized(startLock) {
+				while(!startRequested && state != GameState.DESTROYED) {
+					try {
+						startLock.wait();
+					}catch(InterruptedException ex) {
+						return;
+					}
+				}
+				startRequested = false;
 			}
-		};
-		//Start the thread.start() calls run, which in turn calls gameLoop()
-		gameThread.start();
+			if(state != GameState.DESTROYED) gameLoop();
+		}
 	}
 	
 	// run the game loop here
 	private void gameLoop() {
 		//Regenerate and reset the game objects for a new game
 		if(state == GameState.INITIALIZED || state == GameState.GAMEOVER) {
-			//Generate a new snake and a food item
-			snake.regenerate();
-			
-			//regenerate if food placed under the snake
-			int x, y;
-			do {
-				food.regenerate();
-				x = food.getX();
-				y = food.getY();
-			}while(snake.contains(x,y));
+			if(arenaMode) {
+				//the arena places all the snakes and its own food items on an open pit,
+				//the level, wrap-around, frenzy and autopilot are off (see the menu)
+				arena = new Arena(COLUMNS, ROWS, ARENA_SNAKES, ARENA_FOOD, snake, System.nanoTime());
+				arenaKey = null;
+			}else {
+				arena = null;
+				//Generate a new snake and a food item
+				Level currentLevel = level;
+				if(currentLevel == null || !currentLevel.spawn(snake, 3, new java.util.Random())) {
+					snake.regenerate();
+				}
+				snake.setWrap(wrap);
+				
+				//place the food away from the snake
+				food.regenerate(snake, currentLevel);
+				powerUps.reset(tick);
+				if(frenzy) foodField.fill(FRENZY_ITEMS, snake, food, currentLevel);
+				else foodField.clear();
+			}
+			won = false;
 			
 			state = GameState.PLAYING;
 			
 		}
 		//Game loop
 		long beginTime, timeTaken, timeLeft; //in msec
-		while(state != GameState.GAMEOVER) {
+		while(state != GameState.GAMEOVER && state != GameState.DESTROYED) {
 			beginTime = System.nanoTime();
+			//the bots only see the player's snake, they do not play in the arena
+			if(state == GameState.PLAYING && arena == null) {
+				//the bot process steers the same way as a key press
+				if(sharedBoard != null) {
+					Snake.Direction dir = sharedBoard.pollDirection();
+					if(dir != null) snake.setDirection(dir);
+				}
+				//let the controller steer, the same way as a key press. It has most of the
+				//tick to answer, past that the snake keeps its direction
+				ControllerRunner runner = controllerRunner;
+				if(runner != null) {
+					long deadline = (long) (updatePeriodNsec * powerUps.getSpeedFactor() * 0.8);
+					Snake.Direction dir = runner.nextDirection(BoardState.of(snake, food, score, level), deadline);
+					if(dir != null) snake.setDirection(dir);
+				}
+			}
 			if(state == GameState.PLAYING) {
 				//update the state and position of all the game objects
 				//detect collisions and provide responses
 				gameUpdate();
 			}
+			publishBoard();
 			// Refresh the display
 			repaint();
 			//Delay timer to provide the necessary delay to meet the target rate
 			timeTaken = System.nanoTime() - beginTime;
 			// in milliseconds
-			timeLeft = (UPDATE_PERIOD_NSEC - timeTaken)/ 1000000;
-			if(timeLeft < 10) timeLeft = 10; //set a minium
+			long period = (long) (updatePeriodNsec * powerUps.getSpeedFactor());
+			timeLeft = (period - timeTaken)/ 1000000;
+			long minimum = Math.min(10, period / 1000000);
+			if(timeLeft < minimum) timeLeft = minimum; //set a minium
 			try {
 					//Provides the necessary delay and also yields control
 					//so that other thread can do work
 				Thread.sleep(timeLeft);
-				}catch(InterruptedException ex) {}
+				}catch(InterruptedException ex) {
+					//shutting down
+					return;
+				}
 			
 		}
+		//let the bot process see the game over
+		publishBoard();
+	}
+	
+	//Write the board for the bot process, if there is one
+	private void publishBoard() {
+		if(sharedBoard != null && state != GameState.DESTROYED && arena == null) {
+			sharedBoard.publish(tick, snake, food, foodField, level, score, state);
+		}
 	}
 	
 	//update the state and position of all the game objects
 	// detect collisions and provide responses
 	public void gameUpdate() {
+		++tick;
+		Arena currentArena = arena;
+		if(currentArena != null) {
+			arenaUpdate(currentArena);
+			return;
+		}
+		//spawn and expire the timed power-ups
+		powerUps.tick(tick, snake, food, level);
 		snake.update();
 		processCollision();
 	}
 	
+	//Move all the snakes of the arena, the player's keeps the direction it was given.
+	//The arrow keys are only applied here: a turn made while the arena steps would move
+	//the snake somewhere else than the head it checked
+	private void arenaUpdate(Arena currentArena) {
+		Snake.Direction key = arenaKey;
+		arenaKey = null;
+		arenaDirections[0] = (key != null) ? key : snake.getDirection();
+		currentArena.step(arenaDirections);
+		if(currentArena.getScore(0) != score) {
+			if(currentArena.getScore(0) > score) SoundEffect.EAT.play();
+			score = currentArena.getScore(0);
+			lblScore.setText("Score: "+score);
+		}
+		if(!currentArena.isAlive(0)) {
+			state = GameState.GAMEOVER;
+			SoundEffect.DIE.play();
+		}else if(currentArena.getAliveCount() == 1) {
+			//the last snake standing
+			won = true;
+			state = GameState.GAMEOVER;
+		}
+	}
+	
 	//Collision detection and response
 	public void processCollision() {
 	// check if this snake eats the food item
 		int headX = snake.getHeadX();
 		int headY = snake.getHeadY();
 		
+		// a head entering a portal comes out of the other one. The tail leaves its cell on
+		// this tick, so a head entering that cell is not blocked (as in BoardState.step)
+		Level currentLevel = level;
+		boolean onTail = (headX == snake.getTailX() && headY == snake.getTailY());
+		if(currentLevel != null && pit.contains(headX, headY) && (onTail || !snake.eatItself())) {
+			int exit = currentLevel.portalExit(headY * COLUMNS + headX);
+			if(exit >= 0) {
+				snake.teleport(exit % COLUMNS, exit / COLUMNS);
+				headX = snake.getHeadX();
+				headY = snake.getHeadY();
+			}
+		}
+		
 		if(headX == food.getX() && headY == food.getY()) {
 			// to play a specific sound
 			SoundEffect.EAT.play();
 			score = score + 1;
 			lblScore.setText("Score: "+score);
 			
-			//food eaten, regenerate one
-			int x, y;
-			do {
-				food.regenerate();
-				x = food.getX();
-				y = food.getY();
-			}while(snake.contains(x, y));
+			//food eaten, regenerate one. No room left means the board is filled
+			if(!food.regenerate(snake, currentLevel, foodField)) {
+				won = true;
+				state = GameState.GAMEOVER;
+				return;
+			}
+		}else if(foodField.eatAt(headX, headY)) {
+			// one of the frenzy items, it is placed again below
+			SoundEffect.EAT.play();
+			score = score + 1;
+			lblScore.setText("Score: "+score);
 		}else {
 			//not eaten, shrink the tail
 			snake.shrink();
 		}
+		foodField.respawn(snake, food, currentLevel);
+		
+		// check if this snake eats a power-up
+		int bonus = powerUps.collect(headX, headY, snake);
+		if(bonus > 0) {
+			SoundEffect.EAT.play();
+			score = score + bonus;
+			lblScore.setText("Score: "+score);
+		}
 		
 		// Check if the snake moves out of bounds
 		if(!pit.contains(headX, headY)) {
@@ -180,8 +367,8 @@ public class GameMain extends JPanel{
 			return;
 		}
 		
-		// Check if the snake eats itself
-		if(snake.eatItself()) {
+		// Check if the snake eats itself, unless it is a ghost for now
+		if(!powerUps.isGhost() && snake.eatItself()) {
 			state = GameState.GAMEOVER;
 			// to play a specific sound
 			SoundEffect.DIE.play();
@@ -192,37 +379,132 @@ public class GameMain extends JPanel{
 	}
 	
 	// Refresh the display. Called back via repaint(), which invoke the paintComponent()
-	private void gameDraw(Graphics g) {
+	private void gameDraw(Graphics g, Tiles tiles) {
 		//draw game objects
-		 snake.draw(g);
-		 food.draw(g);
-		
-		g.setFont(new Font("Dialog", Font.PLAIN, 14));
+		Arena currentArena = arena;
+		if(currentArena != null) {
+			currentArena.draw(g, tiles);
+			return;
+		}
+		Level currentLevel = level;
+		if(currentLevel != null) currentLevel.draw(g, tiles);
+		 snake.draw(g, tiles);
+		 food.draw(g, tiles);
+		 foodField.draw(g, tiles);
+		 powerUps.draw(g, tiles);
+	}
+	
+	//Draw the texts over the board, in a canvas of the given size in pixels.
+	//scale is the number of pixels per point of the screen
+	private void gameDrawStatus(Graphics g, int width, int height, double scale) {
+		g.setFont(new Font("Dialog", Font.PLAIN, (int) Math.round(14 * scale)));
 		g.setColor(Color.BLACK);
-		g.drawString("Snake: ("+snake.getHeadX() + "," + snake.getHeadY() + ")",5, 25);
+		g.drawString("Snake: ("+snake.getHeadX() + "," + snake.getHeadY() + ")",
+				(int) (5 * scale), (int) (25 * scale));
+		ControllerRunner runner = controllerRunner;
+		if(runner != null) {
+			g.drawString(runner.toString(), (int) (5 * scale), (int) (45 * scale));
+		}
 		
 		if(state == GameState.GAMEOVER) {
-			g.setFont(new Font("Verdana", Font.BOLD, 30));
+			g.setFont(new Font("Verdana", Font.BOLD, (int) Math.round(30 * scale)));
 			g.setColor(Color.RED);
-			g.drawString("GAME OVER!", 200, CANVAS_HEIGHT / 2);
+			String message = won ? "YOU WIN!" : "GAME OVER!";
+			g.drawString(message, (width - g.getFontMetrics().stringWidth(message)) / 2, height / 2);
+		}
+	}
+	
+	//Cell size in pixels for a canvas of the given size: the whole board fits, then zoom
+	private int cellSize(int width, int height) {
+		int fit = Math.max(1, Math.min(width / COLUMNS, height / ROWS));
+		return Math.max(1, (int) Math.round(fit * ZOOMS[zoom]));
+	}
+	
+	//Position of the board in the canvas along one axis: centered when it fits,
+	//else following the head as far as the board edges allow
+	private static int boardOffset(int canvas, int board, int head) {
+		if(board <= canvas) return (canvas - board) / 2;
+		return Math.max(canvas - board, Math.min(0, canvas / 2 - head));
+	}
+	
+	//Zoom in (steps > 0) or out (steps < 0) by the given number of steps, 0 fits the board
+	public void zoom(int steps) {
+		zoom = (steps == 0) ? 0 : Math.max(0, Math.min(ZOOMS.length - 1, zoom + steps));
+		repaint();
+	}
+	
+	//Stop the current game if needed and start a new one, as Game > New does
+	public void newGame() {
+		if(state == GameState.PLAYING || state == GameState.PAUSED) {
+			state = GameState.GAMEOVER;
+		}
+		gameStart();
+		control.reset();
+	}
+	
+	//Select the controller steering the snake, null for the arrow keys
+	public void setController(SnakeController controller) {
+		ControllerRunner old = controllerRunner;
+		if(old != null && old.getController() == controller) return; //selected again
+		controllerRunner = (controller == null) ? null : new ControllerRunner(controller);
+		if(old != null) old.shutdown();
+	}
+	
+	//The player's snake and food item, and the level. SimulationCheck uses them to play
+	//processCollision() tick by tick without the game loop
+	Snake getSnake() {
+		return snake;
+	}
+	
+	Food getFood() {
+		return food;
+	}
+	
+	void setLevel(Level level) {
+		this.level = level;
+	}
+	
+	//Number of updates since the program started
+	public long getTick() {
+		return tick;
+	}
+	
+	//Turn the snake for an arrow key. In arena mode the turn waits for the next step
+	private void steer(Snake.Direction dir) {
+		if(arena != null) {
+			arenaKey = dir;
+		}else {
+			snake.setDirection(dir);
 		}
-		
 	}
 	
 	//Process a key-pressed event. Update the current state
 	public void gameKeyPressed(int keyCode) {
 		switch (keyCode) {
 		case KeyEvent.VK_UP:
-			snake.setDirection(Snake.Direction.UP);
+			steer(Snake.Direction.UP);
 			break;
 		case KeyEvent.VK_DOWN:
-			snake.setDirection(Snake.Direction.DOWN);
+			steer(Snake.Direction.DOWN);
 			break;
 		case KeyEvent.VK_LEFT:
-			snake.setDirection(Snake.Direction.LEFT);
+			steer(Snake.Direction.LEFT);
 			break;
 		case KeyEvent.VK_RIGHT:
-			snake.setDirection(Snake.Direction.RIGHT);
+			steer(Snake.Direction.RIGHT);
+			break;
+		case KeyEvent.VK_PLUS:
+		case KeyEvent.VK_EQUALS:
+		case KeyEvent.VK_ADD:
+			zoom(1);
+			break;
+		case KeyEvent.VK_MINUS:
+		case KeyEvent.VK_SUBTRACT:
+			zoom(-1);
+			break;
+		case KeyEvent.VK_0:
+		case KeyEvent.VK_NUMPAD0:
+			zoom(0);
 			break;
 		}
 	}
@@ -362,10 +644,39 @@ public class GameMain extends JPanel{
 			super.paintComponent(g);
 			//paint background, may use an image for background
 			//set background color
-			setBackground(Color.decode("0x3F919E"));
+			setBackground(PIT_COLOR);
 			
-			//draw the game objects
-			gameDraw(g);
+			//draw in device pixels: on a Hi-DPI screen the default transform scales every
+			//draw call, instead the tiles are rendered once at the size of a cell on screen
+			Graphics2D g2 = (Graphics2D) g.create();
+			try {
+				java.awt.geom.AffineTransform screen = g2.getTransform();
+				double scale = screen.getScaleX();
+				int width = (int) Math.round(getWidth() * scale);
+				int height = (int) Math.round(getHeight() * scale);
+				g2.setTransform(java.awt.geom.AffineTransform.getTranslateInstance(
+						screen.getTranslateX(), screen.getTranslateY()));
+				
+				int cellSize = cellSize(width, height);
+				int boardWidth = cellSize * COLUMNS, boardHeight = cellSize * ROWS;
+				int x = boardOffset(width, boardWidth, snake.getHeadX() * cellSize + cellSize / 2);
+				int y = boardOffset(height, boardHeight, snake.getHeadY() * cellSize + cellSize / 2);
+				if(boardWidth < width || boardHeight < height) {
+					//the margins around the board
+					g2.setColor(PIT_COLOR.darker());
+					g2.fillRect(0, 0, width, height);
+					g2.setColor(PIT_COLOR);
+					g2.fillRect(x, y, boardWidth, boardHeight);
+				}
+				
+				//draw the game objects
+				g2.translate(x, y);
+				gameDraw(g2, Tiles.forCellSize(cellSize));
+				g2.translate(-x, -y);
+				gameDrawStatus(g2, width, height, scale);
+			}finally {
+				g2.dispose();
+			}
 		}
 		
 		//KeyEvent handlers
@@ -388,9 +699,12 @@ public class GameMain extends JPanel{
 		}
 		
 		// Check if this pit contains the given(x,y) for collision detection
+		// The walls of the level are not part of the pit
 		public boolean contains (int x, int y) {
 			if((x<0)|| (x>=ROWS)) return false;
 			if((y<0)|| (y>=COLUMNS)) return false;
+			Level currentLevel = level;
+			if(currentLevel != null && currentLevel.isWall(x, y)) return false;
 			return true;
 		}
 		
@@ -413,12 +727,156 @@ public class GameMain extends JPanel{
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				// stop the current game if needed
-				if(state == GameState.PLAYING || state == GameState.PAUSED) {
-					state = GameState.GAMEOVER;
+				newGame();
+			}
+			
+		});
+		
+		final JMenuItem levelItem = new JMenuItem("Open Level...", KeyEvent.VK_O);
+		menu.add(levelItem);
+		levelItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser("levels");
+				if(chooser.showOpenDialog(GameMain.this) != JFileChooser.APPROVE_OPTION) return;
+				try {
+					Level loaded = Level.load(chooser.getSelectedFile());
+					if(loaded.getColumns() != COLUMNS || loaded.getRows() != ROWS) {
+						JOptionPane.showMessageDialog(GameMain.this,
+								"The level must be " + COLUMNS + "x" + ROWS + " cells",
+								"Open Level", JOptionPane.ERROR_MESSAGE);
+						return;
+					}
+					level = loaded;
+					newGame();
+				}catch(java.io.IOException ex) {
+					JOptionPane.showMessageDialog(GameMain.this, ex.getMessage(),
+							"Open Level", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+			
+		});
+		
+		final JMenuItem pitItem = new JMenuItem("Open Pit", KeyEvent.VK_P);
+		menu.add(pitItem);
+		pitItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				level = null;
+				newGame();
+			}
+			
+		});
+		
+		final JCheckBoxMenuItem frenzyItem = new JCheckBoxMenuItem("Feeding Frenzy");
+		frenzyItem.setMnemonic(KeyEvent.VK_F);
+		menu.add(frenzyItem);
+		frenzyItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				frenzy = ((JCheckBoxMenuItem) e.getSource()).isSelected();
+				newGame();
+			}
+			
+		});
+		
+		final JCheckBoxMenuItem wrapItem = new JCheckBoxMenuItem("Wrap Around");
+		wrapItem.setMnemonic(KeyEvent.VK_W);
+		menu.add(wrapItem);
+		wrapItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				wrap = ((JCheckBoxMenuItem) e.getSource()).isSelected();
+				newGame();
+			}
+			
+		});
+		
+		//the autopilot menu is filled below, the arena turns it off
+		final JMenu autopilotMenu = new JMenu("Autopilot");
+		final JRadioButtonMenuItem offItem = new JRadioButtonMenuItem("Off", true);
+		JCheckBoxMenuItem arenaItem = new JCheckBoxMenuItem("Snake Arena");
+		arenaItem.setMnemonic(KeyEvent.VK_A);
+		menu.add(arenaItem);
+		arenaItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				arenaMode = ((JCheckBoxMenuItem) e.getSource()).isSelected();
+				//the arena is an open pit without frenzy, and only the arrow keys steer in it
+				levelItem.setEnabled(!arenaMode);
+				pitItem.setEnabled(!arenaMode);
+				frenzyItem.setEnabled(!arenaMode);
+				wrapItem.setEnabled(!arenaMode);
+				autopilotMenu.setEnabled(!arenaMode);
+				if(arenaMode) {
+					offItem.setSelected(true);
+					setController(null);
+				}
+				newGame();
+			}
+			
+		});
+		
+		//Autopilot sub menu, one of the players is selected
+		autopilotMenu.setMnemonic(KeyEvent.VK_A);
+		menu.add(autopilotMenu);
+		ButtonGroup pilots = new ButtonGroup();
+		
+		JRadioButtonMenuItem pilotItem = offItem;
+		pilots.add(pilotItem);
+		autopilotMenu.add(pilotItem);
+		pilotItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				setController(null);
+			}
+			
+		});
+		
+		//one item per controller found on the class path (META-INF/services)
+		for(final SnakeController controller : SnakeController.discover()) {
+			pilotItem = new JRadioButtonMenuItem(controller.getName());
+			pilots.add(pilotItem);
+			autopilotMenu.add(pilotItem);
+			pilotItem.addActionListener(new ActionListener() {
+
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					setController(controller);
+				}
+				
+			});
+		}
+		
+		//play back a champion trained by Neuroevolution
+		pilotItem = new JRadioButtonMenuItem("Neural Network...");
+		pilots.add(pilotItem);
+		autopilotMenu.add(pilotItem);
+		pilotItem.addActionListener(new ActionListener() {
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				JFileChooser chooser = new JFileChooser(".");
+				if(chooser.showOpenDialog(GameMain.this) != JFileChooser.APPROVE_OPTION) {
+					offItem.setSelected(true);
+					setController(null);
+					return;
+				}
+				try {
+					setController(Neuroevolution.loadChampion(chooser.getSelectedFile()));
+					newGame();
+				}catch(java.io.IOException ex) {
+					offItem.setSelected(true);
+					setController(null);
+					JOptionPane.showMessageDialog(GameMain.this, ex.getMessage(),
+							"Neural Network", JOptionPane.ERROR_MESSAGE);
 				}
-				gameStart();
-				control.reset();
 			}
 			
 		});
@@ -436,7 +894,8 @@ public class GameMain extends JPanel{
 			public void actionPerformed(ActionEvent arg0) {
 				String message = "Arrow keys to change direction\n"
 						+"P to pause/resume \n"
-						+"S to toggle sound on/off \n";
+						+"S to toggle sound on/off \n"
+						+"+/- to zoom in/out, 0 to fit the board in the window \n";
 				JOptionPane.showMessageDialog(GameMain.this, message,
 						"Instructions", JOptionPane.PLAIN_MESSAGE);
 					
@@ -0,0 +1,64 @@
+package main;
+
+/*
+ * HamiltonianBot follows a Hamiltonian cycle of the board, so it never traps itself and
+ * can fill the whole board. While the snake is shorter than half the board it takes
+ * shortcuts toward the food item, skipping part of the cycle, as long as the shortcut
+ * stays ahead of the tail along the cycle and does not jump past the food.
+ */
+public class HamiltonianBot implements SnakeController {
+	//free cells kept between the head and the tail along the cycle when cutting short,
+	//so that the snake can grow without running into its tail
+	private static final int SAFETY_GAP = 4;
+	private static final Snake.Direction[] DIRECTIONS = Snake.Direction.values();
+
+	@Override
+	public Snake.Direction nextDirection(BoardView view) {
+		BoardState board = BoardState.from(view);
+		SnakeState snake = board.getSnake();
+		int columns = board.getColumns();
+		HamiltonianCycle cycle = HamiltonianCycle.forBoard(columns, board.getRows());
+
+		int head = snake.getHeadCell();
+		int next = cycle.next(head);
+		Snake.Direction best = directionTo(head, next, columns);
+		if(snake.getLength() < cycle.size() / 2 && board.getFoodX() >= 0) {
+			int tailDistance = cycle.distance(head, snake.getTailCell());
+			int foodDistance = cycle.distance(head, board.getFoodY() * columns + board.getFoodX());
+			int bestDistance = 1;
+			for(Snake.Direction dir : DIRECTIONS) {
+				if(!board.isSafe(dir) || snake.turn(dir) != dir) continue;
+				int cell = board.nextCell(dir);
+				int distance = cycle.distance(head, cell);
+				if(distance > bestDistance && distance <= foodDistance
+						&& distance < tailDistance - SAFETY_GAP) {
+					best = dir;
+					bestDistance = distance;
+				}
+			}
+		}
+		if(board.isSafe(best)) return best;
+
+		//the body is not laid along the cycle yet (a new snake): any safe move
+		for(Snake.Direction dir : DIRECTIONS) {
+			if(board.isSafe(dir)) return dir;
+		}
+		return best;
+	}
+
+	private static Snake.Direction directionTo(int from, int to, int columns) {
+		if(to == from - 1) return Snake.Direction.LEFT;
+		if(to == from + 1) return Snake.Direction.RIGHT;
+		if(to == from - columns) return Snake.Direction.UP;
+		return Snake.Direction.DOWN;
+	}
+
+	@Override
+	public String getName() {
+		return "Hamiltonian Cycle";
+	}
+
+	public String toString() {
+		return getName();
+	}
+}
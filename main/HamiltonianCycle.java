@@ -0,0 +1,190 @@
+package main;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/*
+ * HamiltonianCycle is a closed path that visits every cell of a board exactly once.
+ * For each cell it gives the position of that cell along the cycle.
+ * A cycle is generated once per board size and cached on disk in a compact binary file
+ * (2 bytes per cell when possible); later runs memory-map the file instead of generating.
+ * The cache directory is $HOME/.snake-cache, or the "snake.cache.dir" system property.
+ *
+ * File format (big endian): int MAGIC, int columns, int rows, int bytes per entry (2 or 4),
+ * then the position of every cell, cells numbered y * columns + x.
+ */
+public final class HamiltonianCycle {
+	private static final int MAGIC = 0x48414D43; //"HAMC"
+	private static final int HEADER_SIZE = 16;
+
+	//cycles already loaded by this process, by board size
+	private static final Map<String, HamiltonianCycle> loaded = new HashMap<String, HamiltonianCycle>();
+
+	private final int columns, rows;
+	private final ByteBuffer positions; //mapped or in memory, after the header
+	private final int entryBytes;
+
+	private HamiltonianCycle(int columns, int rows, ByteBuffer positions, int entryBytes) {
+		this.columns = columns;
+		this.rows = rows;
+		this.positions = positions;
+		this.entryBytes = entryBytes;
+	}
+
+	//Get the cycle for the given board size, from memory, the disk cache or generated
+	public static synchronized HamiltonianCycle forBoard(int columns, int rows) {
+		String key = columns + "x" + rows;
+		HamiltonianCycle cycle = loaded.get(key);
+		if(cycle != null) return cycle;
+
+		File file = new File(cacheDir(), "hamiltonian-" + key + ".bin");
+		try {
+			cycle = map(file, columns, rows);
+		}catch(IOException e) {
+			//missing or damaged, generate it again below
+		}
+		if(cycle == null) {
+			ByteBuffer buffer = generate(columns, rows);
+			try {
+				write(file, buffer);
+			}catch(IOException e) {
+				//the cache is only an optimization, keep the generated cycle
+				e.printStackTrace();
+			}
+			cycle = new HamiltonianCycle(columns, rows, slice(buffer), buffer.getInt(12));
+		}
+		loaded.put(key, cycle);
+		return cycle;
+	}
+
+	private static File cacheDir() {
+		String dir = System.getProperty("snake.cache.dir");
+		if(dir != null) return new File(dir);
+		return new File(System.getProperty("user.home"), ".snake-cache");
+	}
+
+	//Map a cached cycle, or return null if the file does not match the board
+	private static HamiltonianCycle map(File file, int columns, int rows) throws IOException {
+		if(!file.isFile()) return null;
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			if(channel.size() < HEADER_SIZE) return null;
+			//the mapping stays valid after the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int entryBytes = buffer.getInt(12);
+			if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != columns || buffer.getInt(8) != rows
+					|| (entryBytes != 2 && entryBytes != 4)
+					|| channel.size() != HEADER_SIZE + (long) columns * rows * entryBytes) {
+				return null;
+			}
+			return new HamiltonianCycle(columns, rows, slice(buffer), entryBytes);
+		}finally {
+			channel.close();
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer) {
+		ByteBuffer copy = buffer.duplicate();
+		copy.position(HEADER_SIZE);
+		return copy.slice();
+	}
+
+	//Write to a temporary file first, so that a reader never sees half a file
+	private static void write(File file, ByteBuffer buffer) throws IOException {
+		File dir = file.getParentFile();
+		if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+		File temp = File.createTempFile(file.getName(), ".tmp", dir);
+		FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE);
+		try {
+			ByteBuffer out = buffer.duplicate();
+			out.rewind();
+			while(out.hasRemaining()) channel.write(out);
+		}finally {
+			channel.close();
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}catch(AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	//Generate the file content for a board. Column 0 is kept free as the way back to the
+	//start, the other columns are swept row by row in a zig-zag, so the number of rows must
+	//be even. A board with odd rows and even columns is swept column by column instead.
+	//There is no Hamiltonian cycle if both are odd
+	static ByteBuffer generate(int columns, int rows) {
+		if(columns < 2 || rows < 2 || (columns % 2 != 0 && rows % 2 != 0)) {
+			throw new IllegalArgumentException("No Hamiltonian cycle on a " + columns + "x" + rows + " board");
+		}
+		int cells = columns * rows;
+		int entryBytes = (cells <= 65536) ? 2 : 4;
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + cells * entryBytes);
+		buffer.putInt(MAGIC).putInt(columns).putInt(rows).putInt(entryBytes);
+
+		boolean transpose = (rows % 2 != 0);
+		int width = transpose ? rows : columns; //along a sweep
+		int height = transpose ? columns : rows; //number of sweeps, even
+		int position = 0;
+		for(int v = 0; v < height; ++v) {
+			//even sweeps go away from column 0, odd sweeps come back to column 1
+			for(int i = 0; i < width - 1; ++i) {
+				int u = (v % 2 == 0) ? i + 1 : width - 1 - i;
+				put(buffer, transpose, columns, u, v, position++, entryBytes);
+			}
+		}
+		//back along column 0, from the last sweep to the first
+		for(int v = height - 1; v >= 0; --v) {
+			put(buffer, transpose, columns, 0, v, position++, entryBytes);
+		}
+		return buffer;
+	}
+
+	private static void put(ByteBuffer buffer, boolean transpose, int columns, int u, int v,
+			int position, int entryBytes) {
+		int x = transpose ? v : u;
+		int y = transpose ? u : v;
+		int offset = HEADER_SIZE + (y * columns + x) * entryBytes;
+		if(entryBytes == 2) buffer.putChar(offset, (char) position);
+		else buffer.putInt(offset, position);
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int size() {
+		return columns * rows;
+	}
+
+	//Position of a cell along the cycle, from 0 to size() - 1
+	public int position(int cell) {
+		return (entryBytes == 2) ? positions.getChar(cell * 2) : positions.getInt(cell * 4);
+	}
+
+	//Number of moves along the cycle to go from one cell to the other
+	public int distance(int from, int to) {
+		int d = position(to) - position(from);
+		return (d < 0) ? d + size() : d;
+	}
+
+	//The cell after the given one along the cycle
+	public int next(int cell) {
+		int x = cell % columns;
+		int y = cell / columns;
+		int target = position(cell) + 1;
+		if(target == size()) target = 0;
+		if(x > 0 && position(cell - 1) == target) return cell - 1;
+		if(x < columns - 1 && position(cell + 1) == target) return cell + 1;
+		if(y > 0 && position(cell - columns) == target) return cell - columns;
+		return cell + columns;
+	}
+}
@@ -0,0 +1,55 @@
+package main;
+
+/*
+ * HeadKernel is the batch stage of the arena collision checks: for all the snakes at
+ * once it turns the next head positions, kept as structure-of-arrays int[], into cell
+ * numbers and looks them up in a grid.
+ * create() returns the Vector API implementation (vector/main/VectorHeadKernel.java,
+ * built separately) when it was compiled and the jdk.incubator.vector module is added
+ * ("--add-modules jdk.incubator.vector"), else the scalar one. Both give exactly the
+ * same results, KernelCheck compares them.
+ */
+public abstract class HeadKernel {
+	//For the heads 0 to n - 1: cells[i] = headY[i] * columns + headX[i], or -1 when the
+	//head is off the board, and values[i] = grid[cells[i]], or 0 when it is off the board
+	public abstract void lookup(int n, int[] headX, int[] headY, int columns, int rows,
+			int[] grid, int[] cells, int[] values);
+
+	//The fastest implementation available
+	public static HeadKernel create() {
+		try {
+			Class<?> vector = Class.forName("main.VectorHeadKernel");
+			return (HeadKernel) vector.getDeclaredConstructor().newInstance();
+		}catch(ReflectiveOperationException | LinkageError e) {
+			//not compiled, or the incubator module is not added
+			return new Scalar();
+		}
+	}
+
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+
+	//One head after the other
+	static final class Scalar extends HeadKernel {
+		@Override
+		public void lookup(int n, int[] headX, int[] headY, int columns, int rows,
+				int[] grid, int[] cells, int[] values) {
+			for(int i = 0; i < n; ++i) {
+				int x = headX[i], y = headY[i];
+				if(x >= 0 && x < columns && y >= 0 && y < rows) {
+					int cell = y * columns + x;
+					cells[i] = cell;
+					values[i] = grid[cell];
+				}else {
+					cells[i] = -1;
+					values[i] = 0;
+				}
+			}
+		}
+
+		public String toString() {
+			return "scalar";
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package main;
+
+import java.util.*;
+
+/*
+ * KernelCheck compares HeadKernel.create() with the scalar HeadKernel, which the arena
+ * relies on to give the same game whichever one is in use.
+ * 1. lookup() on random heads, a part of them off the board on every side, for batch
+ * sizes that are and are not a multiple of the vector length, on a few board sizes
+ * 2. whole arena games with the same seed, one per kernel: the same number of ticks,
+ * the same snakes alive and the same scores
+ * 3. the same arena game played twice with the same kernel, which must be identical
+ * Without the Vector API kernel, create() is the scalar one and the check says so:
+ * build vector/main/VectorHeadKernel.java and run with --add-modules jdk.incubator.vector.
+ * The exit code is 0 on success, 1 on failure.
+ *
+ * Usage: java [--add-modules jdk.incubator.vector] main.KernelCheck [rounds] [seed]
+ */
+public class KernelCheck {
+	private int failures;
+
+	public static void main(String[] args) {
+		int rounds = (args.length > 0) ? Integer.parseInt(args[0]) : 2000;
+		long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+		boolean passed = new KernelCheck().run(rounds, seed);
+		System.exit(passed ? 0 : 1);
+	}
+
+	public boolean run(int rounds, long seed) {
+		HeadKernel scalar = new HeadKernel.Scalar();
+		HeadKernel kernel = HeadKernel.create();
+		System.out.println("Comparing " + kernel + " with " + scalar
+				+ ((kernel instanceof HeadKernel.Scalar) ? " (no Vector API kernel, see VectorHeadKernel)" : ""));
+		checkLookup(scalar, kernel, rounds, new Random(seed));
+		checkArena(scalar, kernel, seed);
+		checkArena(kernel, kernel, seed);
+		return failures == 0;
+	}
+
+	private void checkLookup(HeadKernel expected, HeadKernel actual, int rounds, Random random) {
+		int before = failures;
+		for(int r = 0; r < rounds && failures == before; ++r) {
+			int columns = 1 + random.nextInt(80);
+			int rows = 1 + random.nextInt(80);
+			int n = random.nextInt(70);
+			int[] grid = new int[columns * rows];
+			for(int i = 0; i < grid.length; ++i) grid[i] = random.nextInt(4);
+			int[] headX = new int[n], headY = new int[n];
+			for(int i = 0; i < n; ++i) {
+				//one cell around the board, and now and then far away
+				headX[i] = (random.nextInt(16) == 0) ? random.nextInt() : random.nextInt(columns + 2) - 1;
+				headY[i] = (random.nextInt(16) == 0) ? random.nextInt() : random.nextInt(rows + 2) - 1;
+			}
+			//the entries past n must be left alone
+			int[] cells1 = filled(n + 8, 7), values1 = filled(n + 8, 7);
+			int[] cells2 = filled(n + 8, 7), values2 = filled(n + 8, 7);
+			expected.lookup(n, headX, headY, columns, rows, grid, cells1, values1);
+			actual.lookup(n, headX, headY, columns, rows, grid, cells2, values2);
+			if(!Arrays.equals(cells1, cells2) || !Arrays.equals(values1, values2)) {
+				++failures;
+				System.out.println("  " + n + " heads on " + columns + "x" + rows + ": cells "
+						+ Arrays.toString(cells2) + ", expected " + Arrays.toString(cells1));
+			}
+		}
+		System.out.printf("%s lookup: %d rounds%n", (failures == before) ? "PASS" : "FAIL", rounds);
+	}
+
+	private void checkArena(HeadKernel expected, HeadKernel actual, long seed) {
+		int before = failures;
+		for(int count : new int[] {2, 8, 17, 64}) {
+			int size = Math.max(count, 40);
+			Arena a = new Arena(size, size, count, count * 2, null, seed + count, expected);
+			Arena b = new Arena(size, size, count, count * 2, null, seed + count, actual);
+			for(int t = 0; t < 5000 && a.getAliveCount() > 0; ++t) {
+				a.step(null);
+				b.step(null);
+			}
+			String result = summary(a);
+			if(!result.equals(summary(b))) {
+				++failures;
+				System.out.println("  " + count + " snakes: " + summary(b) + ", expected " + result);
+			}
+		}
+		System.out.printf("%s arena games, %s against %s%n", (failures == before) ? "PASS" : "FAIL",
+				actual, expected);
+	}
+
+	private static String summary(Arena arena) {
+		StringBuilder sb = new StringBuilder("tick " + arena.getTick() + ", alive " + arena.getAliveCount() + ", scores");
+		for(int i = 0; i < arena.getSnakeCount(); ++i) {
+			sb.append(' ').append(arena.getScore(i)).append(arena.isAlive(i) ? "" : "x");
+		}
+		return sb.toString();
+	}
+
+	private static int[] filled(int length, int value) {
+		int[] array = new int[length];
+		Arrays.fill(array, value);
+		return array;
+	}
+}
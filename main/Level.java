@@ -0,0 +1,311 @@
+package main;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/*
+ * A Level describes the board: walls, portals and the areas where the snake may spawn.
+ * The cells are kept in one byte per cell, numbered y * columns + x, which is the grid
+ * used for collision detection. A BFS distance from the spawn areas to every cell is
+ * computed when the level is built; bots can use it, and food is only placed on cells
+ * that can be reached.
+ *
+ * Text format: a header line "SNAKE-LEVEL <columns> <rows>" then one character per cell,
+ * row by row (line breaks and spaces are skipped):
+ * '.' empty, '#' wall, 'S' spawn area, 'a' to 'z' portal (each letter exactly twice,
+ * entering one portal comes out of the other)
+ *
+ * Binary format (big endian), loaded through a memory-mapped file:
+ * int MAGIC, int columns, int rows, then one byte per cell, then one int per cell for
+ * the distance field. Use save() or "java main.Level in.txt out.bin" to convert.
+ */
+public final class Level {
+	public static final byte EMPTY = 0;
+	public static final byte WALL = 1;
+	public static final byte SPAWN = 2;
+	//portal number n is stored as PORTAL + n
+	public static final byte PORTAL = 16;
+	private static final int MAX_PORTALS = 26;
+
+	private static final int MAGIC = 0x534E4B4C; //"SNKL"
+	private static final int HEADER_SIZE = 12;
+	private static final String TEXT_HEADER = "SNAKE-LEVEL";
+
+	private final int columns, rows;
+	private final byte[] cells;
+	//the two cells of each portal, -1 if the portal is not used
+	private final int[] portalCells = new int[MAX_PORTALS * 2];
+	//distance from the nearest spawn cell, -1 if it cannot be reached
+	private final IntBuffer distances;
+
+	private Level(int columns, int rows, byte[] cells, IntBuffer distances) throws IOException {
+		this.columns = columns;
+		this.rows = rows;
+		this.cells = cells;
+		Arrays.fill(portalCells, -1);
+		for(int cell = 0; cell < cells.length; ++cell) {
+			int portal = cells[cell] - PORTAL;
+			if(portal < 0) continue;
+			if(portal >= MAX_PORTALS) throw new IOException("Bad cell code " + cells[cell]);
+			if(portalCells[portal * 2] < 0) portalCells[portal * 2] = cell;
+			else if(portalCells[portal * 2 + 1] < 0) portalCells[portal * 2 + 1] = cell;
+			else throw new IOException("Portal " + (char) ('a' + portal) + " used more than twice");
+		}
+		for(int portal = 0; portal < MAX_PORTALS; ++portal) {
+			if(portalCells[portal * 2] >= 0 && portalCells[portal * 2 + 1] < 0) {
+				throw new IOException("Portal " + (char) ('a' + portal) + " has no exit");
+			}
+		}
+		this.distances = (distances != null) ? distances : IntBuffer.wrap(spawnDistances());
+	}
+
+	//Load a level in the text or the binary format
+	public static Level load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		int magic;
+		try {
+			magic = in.readInt();
+		}finally {
+			in.close();
+		}
+		return (magic == MAGIC) ? loadBinary(file) : loadText(file);
+	}
+
+	//Parse the text format one character at a time, without reading whole lines
+	private static Level loadText(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16);
+		try {
+			if(!TEXT_HEADER.equals(readWord(in))) throw new IOException(file + " is not a level file");
+			int columns = Integer.parseInt(readWord(in));
+			int rows = Integer.parseInt(readWord(in));
+			if(columns <= 0 || rows <= 0) throw new IOException("Bad level size " + columns + "x" + rows);
+			byte[] cells = new byte[columns * rows];
+			int cell = 0;
+			int c;
+			while(cell < cells.length && (c = in.read()) >= 0) {
+				if(c == '.') cells[cell++] = EMPTY;
+				else if(c == '#') cells[cell++] = WALL;
+				else if(c == 'S') cells[cell++] = SPAWN;
+				else if(c >= 'a' && c <= 'z') cells[cell++] = (byte) (PORTAL + c - 'a');
+				else if(c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+					throw new IOException("Bad character '" + (char) c + "' at cell " + cell);
+				}
+			}
+			if(cell < cells.length) throw new IOException("Level ends after " + cell + " cells");
+			return new Level(columns, rows, cells, null);
+		}catch(NumberFormatException e) {
+			throw new IOException("Bad level size in " + file, e);
+		}finally {
+			in.close();
+		}
+	}
+
+	private static String readWord(InputStream in) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c;
+		while((c = in.read()) >= 0) {
+			if(Character.isWhitespace(c)) {
+				if(sb.length() > 0) break;
+			}else {
+				sb.append((char) c);
+			}
+		}
+		return sb.toString();
+	}
+
+	//Map the binary format. The cells are copied into the collision grid in one bulk get,
+	//the distance field is read from the mapping directly
+	private static Level loadBinary(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int columns = buffer.getInt(4);
+			int rows = buffer.getInt(8);
+			long cellCount = (long) columns * rows;
+			if(columns <= 0 || rows <= 0 || channel.size() != HEADER_SIZE + cellCount * 5) {
+				throw new IOException(file + " is not a valid level file");
+			}
+			byte[] cells = new byte[(int) cellCount];
+			buffer.position(HEADER_SIZE);
+			buffer.get(cells);
+			buffer.position(HEADER_SIZE + cells.length);
+			IntBuffer distances = buffer.slice().asIntBuffer();
+			return new Level(columns, rows, cells, distances);
+		}finally {
+			channel.close();
+		}
+	}
+
+	//Write this level in the binary format
+	public void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(columns);
+			out.writeInt(rows);
+			out.write(cells);
+			for(int cell = 0; cell < cells.length; ++cell) {
+				out.writeInt(distances.get(cell));
+			}
+		}finally {
+			out.close();
+		}
+	}
+
+	//Distance from the spawn cells (or from every free cell if there is no spawn area)
+	private int[] spawnDistances() {
+		int[] queue = new int[cells.length];
+		int[] result = new int[cells.length];
+		Arrays.fill(result, -1);
+		int tail = 0;
+		boolean hasSpawn = false;
+		for(int cell = 0; cell < cells.length; ++cell) {
+			if(cells[cell] == SPAWN) hasSpawn = true;
+		}
+		for(int cell = 0; cell < cells.length; ++cell) {
+			if(hasSpawn ? cells[cell] == SPAWN : cells[cell] != WALL) {
+				result[cell] = 0;
+				queue[tail++] = cell;
+			}
+		}
+		bfs(queue, tail, result);
+		return result;
+	}
+
+	//Fill out with the number of moves from the source cell to every cell, -1 if it
+	//cannot be reached. out must have one entry per cell
+	public void distancesFrom(int source, int[] out) {
+		Arrays.fill(out, -1);
+		if(cells[source] == WALL) return;
+		int[] queue = new int[cells.length];
+		out[source] = 0;
+		queue[0] = source;
+		bfs(queue, 1, out);
+	}
+
+	private void bfs(int[] queue, int tail, int[] result) {
+		for(int head = 0; head < tail; ++head) {
+			int cell = queue[head];
+			int next = result[cell] + 1;
+			int x = cell % columns;
+			if(x > 0) tail = visit(cell - 1, next, queue, tail, result);
+			if(x < columns - 1) tail = visit(cell + 1, next, queue, tail, result);
+			if(cell >= columns) tail = visit(cell - columns, next, queue, tail, result);
+			if(cell < cells.length - columns) tail = visit(cell + columns, next, queue, tail, result);
+			int exit = portalExit(cell);
+			//going through a portal counts as one move
+			if(exit >= 0) tail = visit(exit, next, queue, tail, result);
+		}
+	}
+
+	private int visit(int cell, int distance, int[] queue, int tail, int[] result) {
+		if(result[cell] >= 0 || cells[cell] == WALL) return tail;
+		result[cell] = distance;
+		queue[tail] = cell;
+		return tail + 1;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	//The cell code, for cells numbered y * columns + x
+	public byte getCell(int cell) {
+		return cells[cell];
+	}
+
+	public boolean isWall(int x, int y) {
+		return cells[y * columns + x] == WALL;
+	}
+
+	//The cell coming out of the portal on the given cell, or -1 if it is not a portal
+	public int portalExit(int cell) {
+		int portal = cells[cell] - PORTAL;
+		if(portal < 0) return -1;
+		int a = portalCells[portal * 2];
+		return (a == cell) ? portalCells[portal * 2 + 1] : a;
+	}
+
+	//Distance from the nearest spawn cell, -1 if it cannot be reached
+	public int spawnDistance(int cell) {
+		return distances.get(cell);
+	}
+
+	//Returns true if a food item may be placed on the cell: no wall, no portal, reachable
+	public boolean isFoodCell(int cell) {
+		return cells[cell] < PORTAL && cells[cell] != WALL && distances.get(cell) >= 0;
+	}
+
+	//Place the snake head on a random spawn cell, with the body behind it free of walls
+	//and the cell ahead free too. Returns false if there is no room for it
+	public boolean spawn(Snake snake, int length, Random random) {
+		Snake.Direction[] directions = Snake.Direction.values();
+		//start from a random cell and direction, then try all of them in turn
+		int start = random.nextInt(cells.length);
+		int turn = random.nextInt(directions.length);
+		for(int i = 0; i < cells.length; ++i) {
+			int cell = (start + i) % cells.length;
+			//the spawn cells, or any free cell if the level has no spawn area
+			if(distances.get(cell) != 0) continue;
+			for(int j = 0; j < directions.length; ++j) {
+				Snake.Direction dir = directions[(turn + j) % directions.length];
+				if(isFree(cell % columns, cell / columns, dir, length)) {
+					snake.regenerate(cell % columns, cell / columns, length, dir);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	//Returns true if the cell ahead and the cells of a straight body are free
+	private boolean isFree(int headX, int headY, Snake.Direction dir, int length) {
+		int dx = BoardState.dx(dir);
+		int dy = BoardState.dy(dir);
+		for(int i = -1; i < length; ++i) {
+			int x = headX - dx * i;
+			int y = headY - dy * i;
+			if(x < 0 || x >= columns || y < 0 || y >= rows) return false;
+			byte code = cells[y * columns + x];
+			if(code == WALL || code >= PORTAL) return false;
+		}
+		return true;
+	}
+
+	//Draw the walls and the portals
+	public void draw(Graphics g) {
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+
+	//Draw the walls and portals at the cell size of the tiles
+	public void draw(Graphics g, Tiles tiles) {
+		for(int cell = 0; cell < cells.length; ++cell) {
+			if(cells[cell] == WALL) tiles.draw(g, cell % columns, cell / columns, Color.DARK_GRAY, Tiles.RAISED);
+			else if(cells[cell] >= PORTAL) tiles.draw(g, cell % columns, cell / columns, Color.MAGENTA, Tiles.SUNKEN);
+		}
+	}
+
+	//Convert a level to the binary format and report the load times
+	public static void main(String[] args) throws IOException {
+		if(args.length != 2) {
+			System.err.println("Usage: java main.Level <in level> <out.bin>");
+			System.exit(2);
+		}
+		long begin = System.nanoTime();
+		Level level = load(new File(args[0]));
+		System.out.printf("Loaded %dx%d in %.1f ms%n", level.columns, level.rows,
+				(System.nanoTime() - begin) / 1e6);
+		level.save(new File(args[1]));
+		begin = System.nanoTime();
+		load(new File(args[1]));
+		System.out.printf("Reloaded binary in %.1f ms%n", (System.nanoTime() - begin) / 1e6);
+	}
+}
@@ -0,0 +1,263 @@
+package main;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/*
+ * MctsBot chooses a direction by Monte Carlo Tree Search over BoardState.
+ * Every tick each worker thread grows its own search tree from the current board for
+ * the time budget (root parallelization), playing heuristic rollouts from the leaves.
+ * The visit counts of the root moves are then summed over the workers and the most
+ * visited move is played. Rollouts per second per core is kept for reporting.
+ */
+public class MctsBot implements SnakeController {
+	private static final Snake.Direction[] DIRECTIONS = Snake.Direction.values();
+	//exploration constant for UCT
+	private static final double EXPLORATION = 1.0;
+	//number of moves played by a rollout
+	private static final int ROLLOUT_DEPTH = 60;
+
+	private final long budgetNanos;
+	private final int threads;
+	private volatile ExecutorService workers; //created on first use, stopped by close()
+	private final AtomicLong seeds = new AtomicLong(System.nanoTime());
+
+	//statistics, updated by the game thread
+	private volatile double lastRolloutsPerSecPerCore;
+	private long totalRollouts;
+	private long totalNanos;
+
+	//A search node: the board after the move that led here
+	private static final class Node {
+		final BoardState board;
+		final Node[] children = new Node[DIRECTIONS.length];
+		int visits;
+		double reward;
+
+		Node(BoardState board) {
+			this.board = board;
+		}
+	}
+
+	//The result of one worker for one tick
+	private static final class Result {
+		final int[] visits = new int[DIRECTIONS.length];
+		int rollouts;
+	}
+
+	//Search for half of a normal tick, leaving the rest for the update and repaint
+	public MctsBot() {
+		this(GameMain.UPDATE_PERIOD_NSEC / 2000000L);
+	}
+
+	//Search with the given time budget per tick on all the cores
+	public MctsBot(long budgetMillis) {
+		this(budgetMillis, Runtime.getRuntime().availableProcessors());
+	}
+
+	public MctsBot(long budgetMillis, int threads) {
+		this.budgetNanos = budgetMillis * 1000000L;
+		this.threads = threads;
+	}
+
+	@Override
+	public Snake.Direction nextDirection(BoardView view) {
+		return nextDirection(view, Long.MAX_VALUE);
+	}
+
+	//Search for the budget, but no more than 3/4 of the deadline: the votes are still
+	//to be summed and the answer handed back to the game thread
+	@Override
+	public Snake.Direction nextDirection(BoardView view, long deadlineNanos) {
+		final BoardState board = BoardState.from(view);
+		if(workers == null) {
+			workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+				private int count;
+
+				@Override
+				public synchronized Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "mcts-worker-" + (count++));
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		final long deadline = System.nanoTime() + Math.min(budgetNanos, deadlineNanos / 4 * 3);
+		long begin = System.nanoTime();
+		java.util.List<Future<Result>> futures = new ArrayList<Future<Result>>();
+		for(int i = 0; i < threads; ++i) {
+			final long seed = seeds.getAndIncrement();
+			futures.add(workers.submit(new Callable<Result>() {
+				@Override
+				public Result call() {
+					return search(board, deadline, new Random(seed));
+				}
+			}));
+		}
+
+		int[] visits = new int[DIRECTIONS.length];
+		int rollouts = 0;
+		for(Future<Result> future : futures) {
+			try {
+				Result result = future.get();
+				for(int i = 0; i < visits.length; ++i) visits[i] += result.visits[i];
+				rollouts += result.rollouts;
+			}catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}catch(ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+		long elapsed = System.nanoTime() - begin;
+		totalRollouts += rollouts;
+		totalNanos += elapsed;
+		lastRolloutsPerSecPerCore = rollouts * 1e9 / elapsed / threads;
+
+		//play the most visited move, or keep going if nothing was searched
+		Snake.Direction best = board.getSnake().getDirection();
+		int bestVisits = 0;
+		for(int i = 0; i < visits.length; ++i) {
+			if(visits[i] > bestVisits) {
+				bestVisits = visits[i];
+				best = DIRECTIONS[i];
+			}
+		}
+		return best;
+	}
+
+	//Grow one tree from the board until the deadline
+	private Result search(BoardState board, long deadline, Random random) {
+		Result result = new Result();
+		Node root = new Node(board);
+		java.util.List<Node> path = new ArrayList<Node>();
+		do {
+			//selection and expansion
+			path.clear();
+			Node node = root;
+			path.add(node);
+			while(!node.board.isOver()) {
+				Node child;
+				int untried = untried(node);
+				if(untried >= 0) {
+					child = new Node(node.board.step(DIRECTIONS[untried], random));
+					node.children[untried] = child;
+					path.add(child);
+					node = child;
+					break;
+				}
+				child = select(node);
+				path.add(child);
+				node = child;
+			}
+
+			//simulation and backpropagation
+			double reward = rollout(node.board, board.getScore(), random);
+			for(int i = 0; i < path.size(); ++i) {
+				Node n = path.get(i);
+				n.visits++;
+				n.reward += reward;
+			}
+			result.rollouts++;
+		}while(System.nanoTime() < deadline);
+
+		for(int i = 0; i < DIRECTIONS.length; ++i) {
+			if(root.children[i] != null) result.visits[i] = root.children[i].visits;
+		}
+		return result;
+	}
+
+	//The index of a direction not expanded yet, or -1. The reverse direction is the same
+	//move as going straight, so it is skipped
+	private static int untried(Node node) {
+		Snake.Direction reverse = SnakeState.opposite(node.board.getSnake().getDirection());
+		for(int i = 0; i < DIRECTIONS.length; ++i) {
+			if(DIRECTIONS[i] == reverse) continue;
+			if(node.children[i] == null) return i;
+		}
+		return -1;
+	}
+
+	//The child with the best upper confidence bound
+	private static Node select(Node node) {
+		double logVisits = Math.log(node.visits);
+		Node best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(int i = 0; i < DIRECTIONS.length; ++i) {
+			Node child = node.children[i];
+			if(child == null) continue;
+			double value = child.reward / child.visits
+					+ EXPLORATION * Math.sqrt(logVisits / child.visits);
+			if(value > bestValue) {
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	//Play random safe moves, heading for the food most of the time. The reward is in [0,1]:
+	//staying alive, eating and ending close to the food item all count
+	private static double rollout(BoardState board, int rootScore, Random random) {
+		int steps = 0;
+		Snake.Direction[] safe = new Snake.Direction[DIRECTIONS.length];
+		while(!board.isOver() && steps < ROLLOUT_DEPTH) {
+			int count = 0;
+			Snake.Direction towardFood = null;
+			int headX = board.getSnake().getHeadX();
+			int headY = board.getSnake().getHeadY();
+			//the snake cannot turn back, setDirection() would ignore it
+			Snake.Direction back = SnakeState.opposite(board.getSnake().getDirection());
+			for(Snake.Direction dir : DIRECTIONS) {
+				if(dir == back || !board.isSafe(dir)) continue;
+				safe[count++] = dir;
+				int dx = board.getFoodX() - headX;
+				int dy = board.getFoodY() - headY;
+				if(dx * BoardState.dx(dir) > 0 || dy * BoardState.dy(dir) > 0) towardFood = dir;
+			}
+			if(count == 0) {
+				board = board.step(board.getSnake().getDirection(), random);
+				break;
+			}
+			Snake.Direction dir = (towardFood != null && random.nextInt(4) != 0)
+					? towardFood : safe[random.nextInt(count)];
+			board = board.step(dir, random);
+			++steps;
+		}
+		int eaten = board.getScore() - rootScore;
+		double alive = board.isOver() ? (double) steps / ROLLOUT_DEPTH : 1.0;
+		int distance = Math.abs(board.getFoodX() - board.getSnake().getHeadX())
+				+ Math.abs(board.getFoodY() - board.getSnake().getHeadY());
+		double close = 1.0 - (double) distance / (board.getColumns() + board.getRows());
+		return 0.4 * alive + 0.5 * eaten / (eaten + 1.0) + 0.1 * close;
+	}
+
+	//Stop the worker threads, they are created again if the bot plays again
+	@Override
+	public void close() {
+		if(workers != null) {
+			workers.shutdown();
+			workers = null;
+		}
+	}
+
+	//Rollouts per second per core during the last tick
+	public double getRolloutsPerSecPerCore() {
+		return lastRolloutsPerSecPerCore;
+	}
+
+	//Rollouts per second per core since this bot was created
+	public double getAverageRolloutsPerSecPerCore() {
+		return (totalNanos == 0) ? 0 : totalRollouts * 1e9 / totalNanos / threads;
+	}
+
+	@Override
+	public String getName() {
+		return "Monte Carlo Tree Search";
+	}
+
+	public String toString() {
+		return String.format("MCTS: %d threads, %.0f rollouts/s/core", threads, lastRolloutsPerSecPerCore);
+	}
+}
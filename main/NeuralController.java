@@ -0,0 +1,98 @@
+package main;
+
+/*
+ * NeuralController steers with a NeuralNet evolved by Neuroevolution.
+ * It looks from the head: for the left, ahead and right directions it feeds the network
+ * whether the next cell is blocked, how far the nearest obstacle is and how much that
+ * direction leads to the food, plus the length of the snake. The strongest of the three
+ * outputs is the turn to make. Nothing is allocated per move.
+ */
+public class NeuralController implements SnakeController {
+	//inputs, hidden units, outputs (turn left, go ahead, turn right)
+	static final int[] LAYERS = {10, 12, 3};
+
+	private final NeuralNet net;
+	private float[] weights;
+	private final float[] input;
+	private final String name;
+
+	//The network is not shared: its scratch space is used by nextDirection()
+	NeuralController(NeuralNet net, float[] weights, String name) {
+		this.net = net;
+		this.weights = weights;
+		this.input = new float[net.getInputs()];
+		this.name = name;
+	}
+
+	//Play with another genome
+	void setWeights(float[] weights) {
+		this.weights = weights;
+	}
+
+	@Override
+	public Snake.Direction nextDirection(BoardView board) {
+		Snake.Direction ahead = board.getDirection();
+		Snake.Direction left = turnLeft(ahead);
+		Snake.Direction right = SnakeState.opposite(left);
+		int k = 0;
+		k = look(board, left, k);
+		k = look(board, ahead, k);
+		k = look(board, right, k);
+		input[k] = (float) board.getLength() / (board.getColumns() * board.getRows());
+		switch(net.evaluate(weights, input)) {
+		case 0: return left;
+		case 2: return right;
+		default: return ahead;
+		}
+	}
+
+	//Fill the 3 inputs of one direction, from index k. Returns the next index
+	private int look(BoardView board, Snake.Direction dir, int k) {
+		int dx = BoardState.dx(dir), dy = BoardState.dy(dir);
+		int x = board.getHeadX(), y = board.getHeadY();
+		boolean wrap = board.isWrap();
+		int distance = 0;
+		//with wrap-around, the ray ends on the head at the latest
+		do {
+			x += dx;
+			y += dy;
+			if(wrap) {
+				x = BoardState.wrap(x, board.getColumns());
+				y = BoardState.wrap(y, board.getRows());
+			}
+			++distance;
+		}while(!blocked(board, x, y));
+		input[k] = (distance == 1) ? 1f : 0f;
+		input[k + 1] = 1f / distance;
+		if(board.getFoodX() < 0) {
+			input[k + 2] = 0f;
+		}else {
+			int toFood = (board.getFoodX() - board.getHeadX()) * dx + (board.getFoodY() - board.getHeadY()) * dy;
+			input[k + 2] = (float) toFood / Math.max(board.getColumns(), board.getRows());
+		}
+		return k + 3;
+	}
+
+	private static boolean blocked(BoardView board, int x, int y) {
+		return x < 0 || x >= board.getColumns() || y < 0 || y >= board.getRows()
+				|| board.isBody(x, y) || board.isWall(x, y);
+	}
+
+	static Snake.Direction turnLeft(Snake.Direction dir) {
+		switch(dir) {
+		case UP: return Snake.Direction.LEFT;
+		case LEFT: return Snake.Direction.DOWN;
+		case DOWN: return Snake.Direction.RIGHT;
+		default: return Snake.Direction.UP;
+		}
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,71 @@
+package main;
+
+/*
+ * NeuralNet is a small fully connected network with tanh units. It only holds the layer
+ * sizes and the scratch space for the activations; the weights are a flat float[] given
+ * to evaluate(), so one NeuralNet can run every genome of a population in turn.
+ * Weights of layer l are laid out neuron by neuron: the bias first, then one weight per
+ * input. evaluate() does not allocate, and a NeuralNet must not be shared by threads.
+ */
+public final class NeuralNet {
+	private final int[] layers;
+	private final int weightCount;
+	//activations of every layer, layer l starts at offsets[l]
+	private final float[] activations;
+	private final int[] offsets;
+
+	public NeuralNet(int... layers) {
+		if(layers.length < 2) throw new IllegalArgumentException("A network needs at least 2 layers");
+		this.layers = layers.clone();
+		int weights = 0, units = 0;
+		offsets = new int[layers.length];
+		for(int l = 0; l < layers.length; ++l) {
+			offsets[l] = units;
+			units += layers[l];
+			if(l > 0) weights += layers[l] * (layers[l - 1] + 1);
+		}
+		weightCount = weights;
+		activations = new float[units];
+	}
+
+	//Number of weights of a genome for this network
+	public int getWeightCount() {
+		return weightCount;
+	}
+
+	public int[] getLayers() {
+		return layers.clone();
+	}
+
+	public int getInputs() {
+		return layers[0];
+	}
+
+	public int getOutputs() {
+		return layers[layers.length - 1];
+	}
+
+	//Run the network. Returns the index of the strongest output
+	public int evaluate(float[] weights, float[] input) {
+		if(weights.length != weightCount) throw new IllegalArgumentException("Expected " + weightCount + " weights");
+		System.arraycopy(input, 0, activations, 0, layers[0]);
+		int w = 0;
+		for(int l = 1; l < layers.length; ++l) {
+			int in = offsets[l - 1], inputs = layers[l - 1];
+			int out = offsets[l];
+			for(int n = 0; n < layers[l]; ++n) {
+				float sum = weights[w++];
+				for(int i = 0; i < inputs; ++i) {
+					sum += weights[w++] * activations[in + i];
+				}
+				activations[out + n] = (float) Math.tanh(sum);
+			}
+		}
+		int out = offsets[layers.length - 1];
+		int best = 0;
+		for(int n = 1; n < getOutputs(); ++n) {
+			if(activations[out + n] > activations[out + best]) best = n;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,411 @@
+package main;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Neuroevolution trains NeuralController genomes: every generation plays the whole
+ * population on all the cores, keeps the best genomes and breeds the others from them.
+ * 1. A genome is the flat float[] of the network weights. The two populations are
+ * allocated once and swapped every generation
+ * 2. Each worker thread has its own network scratch space and TrainingGame, and takes the
+ * next genome to play from a shared counter, so no thread waits for a slow one
+ * 3. Everything random comes from the seed: the games of a generation (the same for all
+ * genomes) and the breeding. A run gives the same champion on any number of cores
+ * 4. The best genomes are checkpointed to a file whenever the champion improves. Play
+ * it back in the game with Autopilot > Neural Network...
+ *
+ * Run "java main.Neuroevolution [generations] [population] [seed] [checkpoint file]"
+ */
+public class Neuroevolution {
+	private static final int MAGIC = 0x534E4E45; //"SNNE"
+	private static final int VERSION = 1;
+	//games played by each genome per generation, the fitness is the average
+	private static final int GAMES = 4;
+	//breeding: tournament size, chance to mutate a weight and its standard deviation
+	private static final int TOURNAMENT = 3;
+	private static final double MUTATION_RATE = 0.1;
+	private static final double MUTATION_SIGMA = 0.2;
+
+	private final long seed;
+	private final int size, elite;
+	private final NeuralNet layout = new NeuralNet(NeuralController.LAYERS);
+	private float[][] population, next;
+	private final float[] fitness;
+	//fitness of the elites, which lead the population once it is bred
+	private final float[] eliteFitness;
+	private int generation;
+
+	private final ExecutorService pool;
+	private final java.util.List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+	private final AtomicInteger nextGenome = new AtomicInteger();
+
+	private final float[] champion;
+	private float championFitness = Float.NEGATIVE_INFINITY;
+
+	public Neuroevolution(int size, long seed, int threads) {
+		this.size = size;
+		this.seed = seed;
+		this.elite = Math.max(1, size / 16);
+		int weights = layout.getWeightCount();
+		population = new float[size][weights];
+		next = new float[size][weights];
+		fitness = new float[size];
+		eliteFitness = new float[elite];
+		champion = new float[weights];
+		Random random = new Random(mix(seed, -1));
+		for(float[] genome : population) {
+			for(int i = 0; i < genome.length; ++i) genome[i] = (float) random.nextGaussian();
+		}
+
+		pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "neuro-worker-" + (count++));
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		for(int i = 0; i < threads; ++i) {
+			final NeuralController controller = new NeuralController(
+					new NeuralNet(NeuralController.LAYERS), null, "Neural Network");
+			final TrainingGame game = new TrainingGame(GameMain.COLUMNS, GameMain.ROWS);
+			workers.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for(int g = nextGenome.getAndIncrement(); g < size; g = nextGenome.getAndIncrement()) {
+						controller.setWeights(population[g]);
+						float total = 0;
+						for(int k = 0; k < GAMES; ++k) {
+							total += game.play(controller, mix(mix(seed, generation), k));
+						}
+						fitness[g] = total / GAMES;
+					}
+					return null;
+				}
+			});
+		}
+	}
+
+	//Play the current population, then breed the next one.
+	//Returns the best fitness of the generation played
+	public float evolve() throws InterruptedException {
+		nextGenome.set(0);
+		try {
+			for(Future<Void> future : pool.invokeAll(workers)) future.get();
+		}catch(ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+
+		//rank the genomes, the index breaks the ties so that the order is reproducible
+		Integer[] order = new Integer[size];
+		for(int i = 0; i < size; ++i) order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int c = Float.compare(fitness[b], fitness[a]);
+				return (c != 0) ? c : Integer.compare(a, b);
+			}
+		});
+		float best = fitness[order[0]];
+		if(best > championFitness) {
+			championFitness = best;
+			System.arraycopy(population[order[0]], 0, champion, 0, champion.length);
+		}
+
+		Random random = new Random(mix(seed, generation));
+		for(int i = 0; i < elite; ++i) {
+			System.arraycopy(population[order[i]], 0, next[i], 0, champion.length);
+			eliteFitness[i] = fitness[order[i]];
+		}
+		for(int i = elite; i < size; ++i) {
+			float[] a = population[order[tournament(random)]];
+			float[] b = population[order[tournament(random)]];
+			float[] child = next[i];
+			for(int w = 0; w < child.length; ++w) {
+				child[w] = random.nextBoolean() ? a[w] : b[w];
+				if(random.nextDouble() < MUTATION_RATE) child[w] += (float) (random.nextGaussian() * MUTATION_SIGMA);
+			}
+		}
+		float[][] played = population;
+		population = next;
+		next = played;
+		++generation;
+		return best;
+	}
+
+	//Rank (0 is the best) of the winner of a tournament between random genomes
+	private int tournament(Random random) {
+		int winner = size;
+		for(int i = 0; i < TOURNAMENT; ++i) winner = Math.min(winner, random.nextInt(size));
+		return winner;
+	}
+
+	public int getGeneration() {
+		return generation;
+	}
+
+	public float getChampionFitness() {
+		return championFitness;
+	}
+
+	//Write the champion and the elites of the last generation
+	public void checkpoint(File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if(!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+		File temp = File.createTempFile(file.getName(), ".tmp", dir);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			int[] layers = layout.getLayers();
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(layers.length);
+			for(int units : layers) out.writeInt(units);
+			out.writeLong(seed);
+			out.writeInt(generation);
+			out.writeInt(elite + 1);
+			writeGenome(out, championFitness, champion);
+			for(int i = 0; i < elite; ++i) writeGenome(out, eliteFitness[i], population[i]);
+		}finally {
+			out.close();
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		}catch(AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void writeGenome(DataOutputStream out, float fitness, float[] genome) throws IOException {
+		out.writeFloat(fitness);
+		for(float w : genome) out.writeFloat(w);
+	}
+
+	//Read the champion of a checkpoint file
+	public static NeuralController loadChampion(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException(file + " is not a checkpoint");
+			int[] layers = new int[in.readInt()];
+			for(int l = 0; l < layers.length; ++l) layers[l] = in.readInt();
+			if(!Arrays.equals(layers, NeuralController.LAYERS)) {
+				throw new IOException(file + ": the network is " + Arrays.toString(layers)
+						+ ", expected " + Arrays.toString(NeuralController.LAYERS));
+			}
+			in.readLong(); //seed
+			int generation = in.readInt();
+			if(in.readInt() < 1) throw new IOException(file + " has no genome");
+			float championFitness = in.readFloat();
+			float[] weights = new float[new NeuralNet(layers).getWeightCount()];
+			for(int i = 0; i < weights.length; ++i) weights[i] = in.readFloat();
+			return new NeuralController(new NeuralNet(layers), weights,
+					String.format("Neural Network (gen %d, fitness %.2f)", generation, championFitness));
+		}catch(EOFException e) {
+			throw new IOException(file + " is truncated");
+		}finally {
+			in.close();
+		}
+	}
+
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	//A well mixed seed from two numbers (SplitMix64 finalizer)
+	static long mix(long a, long b) {
+		long z = a * 0x9E3779B97F4A7C15L + b;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	public static void main(String[] args) throws Exception {
+		int generations = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+		int size = (args.length > 1) ? Integer.parseInt(args[1]) : 512;
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1;
+		File file = new File((args.length > 3) ? args[3] : "snake-champion.bin");
+		int threads = Runtime.getRuntime().availableProcessors();
+
+		Neuroevolution evolution = new Neuroevolution(size, seed, threads);
+		System.out.println("Population " + size + ", seed " + seed + ", " + threads + " threads, checkpoint " + file);
+		long start = System.nanoTime();
+		for(int g = 0; g < generations; ++g) {
+			float before = evolution.getChampionFitness();
+			float best = evolution.evolve();
+			if(best > before) evolution.checkpoint(file);
+			double minutes = (System.nanoTime() - start) / 60e9;
+			System.out.printf("gen %d: best %.3f, champion %.3f, %.1f generations/min%n",
+					evolution.getGeneration(), best, evolution.getChampionFitness(),
+					evolution.getGeneration() / minutes);
+		}
+		double minutes = (System.nanoTime() - start) / 60e9;
+		System.out.printf("%d generations in %.1f s: %.1f generations/min, %.0f games/s%n",
+				generations, minutes * 60, generations / minutes,
+				(double) generations * size * GAMES / (minutes * 60));
+		evolution.shutdown();
+	}
+
+	/*
+	 * A fast game for training, with the rules of GameMain on an open pit: one food item,
+	 * the snake grows by one cell per item and dies on the edges or its own body.
+	 * The body is not stored: each cell remembers the tick when the head last entered it,
+	 * and is part of the body if that was less than "length" ticks ago (as in SnakeState).
+	 * A game allocates nothing.
+	 */
+	static final class TrainingGame implements BoardView {
+		private static final int INIT_LENGTH = 3;
+
+		private final int columns, rows;
+		private final long[] stamps;
+		private final Random random = new Random();
+		//keeps growing from game to game, so that the stamps never need clearing
+		private long tick;
+		private int headX, headY, length, foodX, foodY, eaten;
+		private Snake.Direction direction;
+
+		TrainingGame(int columns, int rows) {
+			this.columns = columns;
+			this.rows = rows;
+			stamps = new long[columns * rows];
+			Arrays.fill(stamps, Long.MIN_VALUE / 2);
+		}
+
+		//Play one game to the end. Returns the items eaten, plus up to 1 for surviving
+		float play(SnakeController controller, long seed) {
+			random.setSeed(seed);
+			tick += stamps.length + 1; //forget the body of the last game
+			length = INIT_LENGTH;
+			eaten = 0;
+			direction = Snake.Direction.values()[random.nextInt(4)];
+			headX = random.nextInt(columns - INIT_LENGTH * 2) + INIT_LENGTH;
+			headY = random.nextInt(rows - INIT_LENGTH * 2) + INIT_LENGTH;
+			int dx = BoardState.dx(direction), dy = BoardState.dy(direction);
+			for(int i = INIT_LENGTH - 1; i >= 0; --i) {
+				stamps[(headY - dy * i) * columns + headX - dx * i] = tick - i;
+			}
+			placeFood();
+
+			int steps = 0, hunger = 0;
+			while(foodX >= 0 && hunger < 2 * (columns + rows) + length) {
+				Snake.Direction dir = controller.nextDirection(this);
+				if(dir != SnakeState.opposite(direction)) direction = dir;
+				int x = headX + BoardState.dx(direction);
+				int y = headY + BoardState.dy(direction);
+				if(x < 0 || x >= columns || y < 0 || y >= rows) break;
+				int cell = y * columns + x;
+				boolean grow = (x == foodX && y == foodY);
+				if(tick + 1 - stamps[cell] < (grow ? length + 1 : length)) break;
+				stamps[cell] = ++tick;
+				headX = x;
+				headY = y;
+				++steps;
+				if(grow) {
+					++length;
+					++eaten;
+					hunger = 0;
+					placeFood();
+				}else {
+					++hunger;
+				}
+			}
+			return eaten + Math.min(steps, 1000) / 1000f;
+		}
+
+		//A random free cell for the food, -1 if the board is full
+		private void placeFood() {
+			for(int i = 0; i < 32; ++i) {
+				int cell = random.nextInt(stamps.length);
+				if(tick - stamps[cell] >= length) {
+					setFood(cell);
+					return;
+				}
+			}
+			int start = random.nextInt(stamps.length);
+			for(int i = 0; i < stamps.length; ++i) {
+				int cell = (start + i) % stamps.length;
+				if(tick - stamps[cell] >= length) {
+					setFood(cell);
+					return;
+				}
+			}
+			foodX = foodY = -1;
+		}
+
+		private void setFood(int cell) {
+			foodX = cell % columns;
+			foodY = cell / columns;
+		}
+
+		@Override
+		public int getColumns() {
+			return columns;
+		}
+
+		@Override
+		public int getRows() {
+			return rows;
+		}
+
+		@Override
+		public int getHeadX() {
+			return headX;
+		}
+
+		@Override
+		public int getHeadY() {
+			return headY;
+		}
+
+		@Override
+		public Snake.Direction getDirection() {
+			return direction;
+		}
+
+		@Override
+		public int getLength() {
+			return length;
+		}
+
+		@Override
+		public boolean isBody(int x, int y) {
+			if(x < 0 || x >= columns || y < 0 || y >= rows) return false;
+			return tick - stamps[y * columns + x] < length;
+		}
+
+		//The cell entered i ticks ago is the i-th of the body
+		@Override
+		public int getCells(int[] out) {
+			for(int cell = 0; cell < stamps.length; ++cell) {
+				long i = tick - stamps[cell];
+				if(i >= 0 && i < length) out[(int) i] = cell;
+			}
+			return length;
+		}
+
+		@Override
+		public boolean isWall(int x, int y) {
+			return false;
+		}
+
+		@Override
+		public int getFoodX() {
+			return foodX;
+		}
+
+		@Override
+		public int getFoodY() {
+			return foodY;
+		}
+
+		@Override
+		public int getScore() {
+			return eaten;
+		}
+	}
+}
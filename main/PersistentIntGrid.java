@@ -0,0 +1,68 @@
+package main;
+
+/*
+ * PersistentIntGrid is an immutable array of int, one value per cell of the board.
+ * set() returns a new grid and leaves this one unchanged. The values are kept in a
+ * 32-way tree, so a set() only copies the path from the root to one leaf
+ * (3 small arrays for a 40x40 board) and shares everything else with the old grid.
+ */
+final class PersistentIntGrid {
+	private static final int BITS = 5;
+	private static final int WIDTH = 1 << BITS;
+	private static final int MASK = WIDTH - 1;
+
+	private final Object root; //int[] leaf if shift is 0, else Object[] of children
+	private final int shift; //index bits consumed above the leaves
+	private final int size;
+
+	private PersistentIntGrid(Object root, int shift, int size) {
+		this.root = root;
+		this.shift = shift;
+		this.size = size;
+	}
+
+	//A grid of the given size with every cell set to value
+	static PersistentIntGrid filled(int size, int value) {
+		int[] leaf = new int[WIDTH];
+		java.util.Arrays.fill(leaf, value);
+		//all the children of a level are the same node until they are set
+		Object node = leaf;
+		int shift = 0;
+		while((long) WIDTH << shift < size) {
+			Object[] children = new Object[WIDTH];
+			java.util.Arrays.fill(children, node);
+			node = children;
+			shift += BITS;
+		}
+		return new PersistentIntGrid(node, shift, size);
+	}
+
+	int size() {
+		return size;
+	}
+
+	int get(int index) {
+		Object node = root;
+		for(int s = shift; s > 0; s -= BITS) {
+			node = ((Object[]) node)[(index >>> s) & MASK];
+		}
+		return ((int[]) node)[index & MASK];
+	}
+
+	PersistentIntGrid set(int index, int value) {
+		if(index < 0 || index >= size) throw new IndexOutOfBoundsException("cell " + index);
+		return new PersistentIntGrid(set(root, shift, index, value), shift, size);
+	}
+
+	private static Object set(Object node, int shift, int index, int value) {
+		if(shift == 0) {
+			int[] leaf = ((int[]) node).clone();
+			leaf[index & MASK] = value;
+			return leaf;
+		}
+		Object[] children = ((Object[]) node).clone();
+		int i = (index >>> shift) & MASK;
+		children[i] = set(children[i], shift - BITS, index, value);
+		return children;
+	}
+}
@@ -0,0 +1,54 @@
+package main;
+
+import java.awt.*;
+
+// A PowerUp is a timed item placed in the pit. It disappears if it is not eaten in time
+public class PowerUp {
+	public static enum Type {
+		SPEED_BOOST(Color.ORANGE), //the game runs faster for a while
+		SLOW_MOTION(Color.CYAN), //the game runs slower for a while
+		SHRINK(Color.PINK), //the tail loses a few cells
+		GHOST(Color.WHITE), //the snake can go through itself for a while
+		BONUS_FOOD(Color.YELLOW); //extra points
+
+		private final Color color;
+
+		Type(Color color) {
+			this.color = color;
+		}
+	}
+
+	//location (x,y) in cells
+	private final int x, y;
+	private final Type type;
+	//the timer removing it from the pit
+	TimingWheel.Timer<PowerUps.Event> expiry;
+
+	public PowerUp(int x, int y, Type type) {
+		this.x = x;
+		this.y = y;
+		this.type = type;
+	}
+
+	public int getX() {
+		return x;
+	}
+
+	public int getY() {
+		return y;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	//Draw itself
+	public void draw(Graphics g) {
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+
+	//Draw itself at the cell size of the tiles
+	public void draw(Graphics g, Tiles tiles) {
+		tiles.draw(g, x, y, type.color, Tiles.OVAL);
+	}
+}
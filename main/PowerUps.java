@@ -0,0 +1,183 @@
+package main;
+
+import java.awt.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/*
+ * PowerUps places timed power-ups in the pit and keeps track of their effects.
+ * Every spawn, expiry and end of effect is a timer on a TimingWheel keyed by the game
+ * tick, so the work per tick does not depend on how many timers are pending.
+ * 1. Call reset() when a game starts and tick() once per game update
+ * 2. Call collect() with the head position from the collision detection
+ * 3. Ask getSpeedFactor() and isGhost() for the effects in progress
+ */
+public class PowerUps {
+	//ticks between two spawns, at random in [MIN, MIN + SPREAD)
+	private static final int SPAWN_MIN = 20;
+	private static final int SPAWN_SPREAD = 30;
+	//ticks a power-up stays in the pit
+	private static final int LIFETIME = 40;
+	//ticks an effect lasts
+	private static final int EFFECT_TICKS = 30;
+	//cells removed by SHRINK, the snake keeps at least MIN_LENGTH
+	private static final int SHRINK_CELLS = 3;
+	private static final int MIN_LENGTH = 3;
+	//points given by BONUS_FOOD
+	private static final int BONUS_POINTS = 3;
+
+	//What happens when a timer expires
+	static final class Event {
+		static final int SPAWN = 0, EXPIRE = 1, END_SPEED = 2, END_GHOST = 3;
+		final int kind;
+		final PowerUp powerUp; //for EXPIRE
+
+		Event(int kind, PowerUp powerUp) {
+			this.kind = kind;
+			this.powerUp = powerUp;
+		}
+	}
+
+	private final TimingWheel<Event> wheel = new TimingWheel<Event>(256, 0);
+	//power-ups in the pit, read by the drawing thread
+	private final java.util.List<PowerUp> items = new CopyOnWriteArrayList<PowerUp>();
+	private final Random random = new Random();
+	private final Event spawn = new Event(Event.SPAWN, null);
+	private final Event endSpeed = new Event(Event.END_SPEED, null);
+	private final Event endGhost = new Event(Event.END_GHOST, null);
+	private final Consumer<Event> handler = new Consumer<Event>() {
+		@Override
+		public void accept(Event event) {
+			expired(event);
+		}
+	};
+
+	//effects in progress, with the timers ending them
+	private volatile double speedFactor = 1.0;
+	private TimingWheel.Timer<Event> speedTimer;
+	private volatile boolean ghost;
+	private TimingWheel.Timer<Event> ghostTimer;
+
+	//the game objects the power-ups must not be placed on, during tick()
+	private Snake snake;
+	private Food food;
+	private Level level;
+
+	//Clear the pit and the effects for a new game starting at the given tick
+	public void reset(long tick) {
+		wheel.clear(tick);
+		items.clear();
+		speedFactor = 1.0;
+		ghost = false;
+		speedTimer = null;
+		ghostTimer = null;
+		wheel.schedule(tick + nextSpawnDelay(), spawn);
+	}
+
+	//Run the timers up to the given tick
+	public void tick(long tick, Snake snake, Food food, Level level) {
+		this.snake = snake;
+		this.food = food;
+		this.level = level;
+		wheel.advance(tick, handler);
+	}
+
+	private void expired(Event event) {
+		switch(event.kind) {
+		case Event.SPAWN:
+			place();
+			wheel.schedule(wheel.getCurrentTick() + nextSpawnDelay(), spawn);
+			break;
+		case Event.EXPIRE:
+			items.remove(event.powerUp);
+			break;
+		case Event.END_SPEED:
+			speedFactor = 1.0;
+			break;
+		case Event.END_GHOST:
+			ghost = false;
+			break;
+		}
+	}
+
+	private int nextSpawnDelay() {
+		return SPAWN_MIN + random.nextInt(SPAWN_SPREAD);
+	}
+
+	//Put a random power-up on a free cell, give up if none is found quickly
+	private void place() {
+		for(int i = 0; i < 32; ++i) {
+			int x = random.nextInt(GameMain.COLUMNS - 4) + 2;
+			int y = random.nextInt(GameMain.ROWS - 4) + 2;
+			if(snake.contains(x, y) || (x == food.getX() && y == food.getY()) || at(x, y) != null) continue;
+			if(level != null && !level.isFoodCell(y * GameMain.COLUMNS + x)) continue;
+			PowerUp.Type[] types = PowerUp.Type.values();
+			PowerUp powerUp = new PowerUp(x, y, types[random.nextInt(types.length)]);
+			powerUp.expiry = wheel.schedule(wheel.getCurrentTick() + LIFETIME, new Event(Event.EXPIRE, powerUp));
+			items.add(powerUp);
+			return;
+		}
+	}
+
+	private PowerUp at(int x, int y) {
+		for(PowerUp powerUp : items) {
+			if(powerUp.getX() == x && powerUp.getY() == y) return powerUp;
+		}
+		return null;
+	}
+
+	//Eat the power-up under the head, if any, and start its effect.
+	//Returns the points it gives
+	public int collect(int headX, int headY, Snake snake) {
+		PowerUp powerUp = at(headX, headY);
+		if(powerUp == null) return 0;
+		items.remove(powerUp);
+		wheel.cancel(powerUp.expiry);
+		long now = wheel.getCurrentTick();
+		switch(powerUp.getType()) {
+		case SPEED_BOOST:
+		case SLOW_MOTION:
+			//a new speed effect replaces the one in progress
+			speedFactor = (powerUp.getType() == PowerUp.Type.SPEED_BOOST) ? 0.5 : 2.0;
+			wheel.cancel(speedTimer);
+			speedTimer = wheel.schedule(now + EFFECT_TICKS, endSpeed);
+			break;
+		case GHOST:
+			ghost = true;
+			wheel.cancel(ghostTimer);
+			ghostTimer = wheel.schedule(now + EFFECT_TICKS, endGhost);
+			break;
+		case SHRINK:
+			for(int i = 0; i < SHRINK_CELLS && snake.getLength() > MIN_LENGTH; ++i) {
+				snake.shrink();
+			}
+			break;
+		case BONUS_FOOD:
+			return BONUS_POINTS;
+		}
+		return 0;
+	}
+
+	//Multiplier of the update period: below 1 the game runs faster
+	public double getSpeedFactor() {
+		return speedFactor;
+	}
+
+	//Returns true while the snake can go through itself
+	public boolean isGhost() {
+		return ghost;
+	}
+
+	//Draw the power-ups in the pit
+	public void draw(Graphics g) {
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+
+	//Draw the power-ups at the cell size of the tiles
+	public void draw(Graphics g, Tiles tiles) {
+		for(PowerUp powerUp : items) {
+			powerUp.draw(g, tiles);
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package main;
+
+import java.io.*;
+import java.lang.invoke.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * SharedBoard publishes the board of every tick into a memory-mapped file, and reads the
+ * direction chosen by a bot running in another process from a mailbox in the same file.
+ * No socket and no serialization: the bot maps the file and reads the fields in place.
+ *
+ * Layout, little endian, offsets in bytes:
+ *   0 int  MAGIC "SNKB"         4 int  VERSION
+ *   8 int  columns             12 int  rows
+ *  16 long seq: odd while the game writes, even when the board below is consistent
+ *  24 long tick                32 int  score
+ *  36 int  headX               40 int  headY
+ *  44 int  direction (0 UP, 1 DOWN, 2 LEFT, 3 RIGHT)
+ *  48 int  foodX               52 int  foodY
+ *  56 int  snake length        60 int  state (0 playing, 1 paused, 2 game over)
+ *  64 long mailbox seq: the bot writes the two fields below, then increments it
+ *  72 int  mailbox direction   76 int  unused
+ *  80 long mailbox tick: the tick the bot has answered, the game ignores older answers
+ * 128 one byte per cell, y * columns + x: see the cell codes below
+ *
+ * A reader copies what it needs between two reads of seq, and starts again if seq was
+ * odd or has changed (seqlock).
+ */
+public class SharedBoard implements Closeable {
+	public static final byte CELL_EMPTY = 0, CELL_BODY = 1, CELL_HEAD = 2, CELL_FOOD = 3, CELL_WALL = 4;
+
+	private static final int MAGIC = 0x534E4B42; //"SNKB"
+	private static final int VERSION = 1;
+	private static final int SEQ = 16, TICK = 24, SCORE = 32, HEAD_X = 36, HEAD_Y = 40,
+			DIRECTION = 44, FOOD_X = 48, FOOD_Y = 52, LENGTH = 56, STATE = 60,
+			MAILBOX_SEQ = 64, MAILBOX_DIRECTION = 72, MAILBOX_TICK = 80;
+	private static final int CELLS = 128;
+	private static final Snake.Direction[] DIRECTIONS = Snake.Direction.values();
+
+	//ordered access to the 8 byte counters of the mapped file
+	private static final VarHandle LONGS =
+			MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int columns, rows;
+	//reused every tick, so that publishing does not allocate
+	private final byte[] grid;
+	private int[] snakeCells;
+	private long lastMailboxSeq;
+	//the tick of the last board published, the only one a bot answer is used for
+	private long publishedTick = -1;
+
+	//Create (or reset) the file for a board of the given size, for the game side
+	public static SharedBoard create(File file, int columns, int rows) throws IOException {
+		return new SharedBoard(file, columns, rows, true);
+	}
+
+	//Open a file created by the game, for the bot side
+	public static SharedBoard open(File file) throws IOException {
+		return new SharedBoard(file, 0, 0, false);
+	}
+
+	private SharedBoard(File file, int columns, int rows, boolean create) throws IOException {
+		if(create) {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, CELLS + (long) columns * rows);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, VERSION);
+			buffer.putInt(8, columns);
+			buffer.putInt(12, rows);
+			buffer.putInt(MAILBOX_DIRECTION, -1);
+		}else {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException(file + " is not a shared board");
+			}
+			columns = buffer.getInt(8);
+			rows = buffer.getInt(12);
+		}
+		this.columns = columns;
+		this.rows = rows;
+		this.grid = new byte[columns * rows];
+		this.lastMailboxSeq = (long) LONGS.getAcquire(buffer, MAILBOX_SEQ);
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	// ----------- game side -------------
+
+	//Write the board of this tick. extraFood may be null
+	public void publish(long tick, SnakeView snake, Food food, FoodField extraFood, Level level,
+			int score, GameMain.GameState state) {
+		//build the cells outside of the write section, to keep it short
+		for(int cell = 0; cell < grid.length; ++cell) {
+			byte code = CELL_EMPTY;
+			if(level != null && level.getCell(cell) == Level.WALL) code = CELL_WALL;
+			else if(extraFood != null && extraFood.contains(cell % columns, cell / columns)) code = CELL_FOOD;
+			grid[cell] = code;
+		}
+		int length = snake.getLength();
+		if(snakeCells == null || snakeCells.length < length) snakeCells = new int[length * 2];
+		int n = snake.getCells(snakeCells, columns);
+		//the body cells were all heads on the board. The head is checked by x and y apart:
+		//off the left or right edge its number is a cell of the row above or below
+		int headX = snake.getHeadX(), headY = snake.getHeadY();
+		boolean headOn = headX >= 0 && headX < columns && headY >= 0 && headY < rows;
+		for(int i = (headOn ? 0 : 1); i < n; ++i) {
+			grid[snakeCells[i]] = (i == 0) ? CELL_HEAD : CELL_BODY;
+		}
+		if(food.getX() >= 0) grid[food.getY() * columns + food.getX()] = CELL_FOOD;
+
+		long seq = (long) LONGS.getOpaque(buffer, SEQ);
+		LONGS.setOpaque(buffer, SEQ, seq + 1); //odd: writing
+		VarHandle.storeStoreFence();
+		buffer.putLong(TICK, tick);
+		publishedTick = tick;
+		buffer.putInt(SCORE, score);
+		buffer.putInt(HEAD_X, snake.getHeadX());
+		buffer.putInt(HEAD_Y, snake.getHeadY());
+		buffer.putInt(DIRECTION, snake.getDirection().ordinal());
+		buffer.putInt(FOOD_X, food.getX());
+		buffer.putInt(FOOD_Y, food.getY());
+		buffer.putInt(LENGTH, length);
+		buffer.putInt(STATE, (state == GameMain.GameState.PAUSED) ? 1
+				: (state == GameMain.GameState.PLAYING) ? 0 : 2);
+		buffer.put(CELLS, grid, 0, grid.length);
+		LONGS.setRelease(buffer, SEQ, seq + 2); //even: consistent
+	}
+
+	//The direction posted by the bot since the last call, or null if there is none.
+	//An answer to an older board than the last one published is dropped
+	public Snake.Direction pollDirection() {
+		long seq = (long) LONGS.getAcquire(buffer, MAILBOX_SEQ);
+		if(seq == lastMailboxSeq) return null;
+		lastMailboxSeq = seq;
+		if((long) LONGS.getOpaque(buffer, MAILBOX_TICK) != publishedTick) return null;
+		int dir = buffer.getInt(MAILBOX_DIRECTION);
+		return (dir >= 0 && dir < DIRECTIONS.length) ? DIRECTIONS[dir] : null;
+	}
+
+	// ----------- bot side -------------
+
+	//A copy of the board, filled by read()
+	public static class Snapshot {
+		public long tick;
+		public int score, headX, headY, foodX, foodY, length, state;
+		public Snake.Direction direction;
+		public byte[] cells;
+	}
+
+	//Copy a consistent board into the snapshot. Spins while the game is writing
+	public void read(Snapshot out) {
+		if(out.cells == null || out.cells.length != grid.length) out.cells = new byte[grid.length];
+		while(true) {
+			long before = (long) LONGS.getAcquire(buffer, SEQ);
+			if((before & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			out.tick = buffer.getLong(TICK);
+			out.score = buffer.getInt(SCORE);
+			out.headX = buffer.getInt(HEAD_X);
+			out.headY = buffer.getInt(HEAD_Y);
+			int dir = buffer.getInt(DIRECTION);
+			out.foodX = buffer.getInt(FOOD_X);
+			out.foodY = buffer.getInt(FOOD_Y);
+			out.length = buffer.getInt(LENGTH);
+			out.state = buffer.getInt(STATE);
+			buffer.get(CELLS, out.cells, 0, out.cells.length);
+			VarHandle.loadLoadFence();
+			if((long) LONGS.getOpaque(buffer, SEQ) == before) {
+				out.direction = (dir >= 0 && dir < DIRECTIONS.length) ? DIRECTIONS[dir] : null;
+				return;
+			}
+		}
+	}
+
+	//The tick of the last published board, without copying it
+	public long getTick() {
+		return (long) LONGS.getAcquire(buffer, TICK);
+	}
+
+	//Post the bot's direction for the given tick
+	public void postDirection(Snake.Direction dir, long tick) {
+		buffer.putInt(MAILBOX_DIRECTION, dir.ordinal());
+		LONGS.setOpaque(buffer, MAILBOX_TICK, tick);
+		long seq = (long) LONGS.getOpaque(buffer, MAILBOX_SEQ);
+		LONGS.setRelease(buffer, MAILBOX_SEQ, seq + 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	//A sample bot process: heads for the food item, avoiding walls and the body.
+	//Start the game with -Dsnake.shm=<file>, then run "java main.SharedBoard <file>"
+	public static void main(String[] args) throws Exception {
+		if(args.length != 1) {
+			System.err.println("Usage: java main.SharedBoard <shared board file>");
+			System.exit(2);
+		}
+		SharedBoard board = open(new File(args[0]));
+		Snapshot snapshot = new Snapshot();
+		long answered = -1;
+		int idle = 0;
+		while(true) {
+			if(board.getTick() == answered) {
+				//spin for the lowest latency, but leave the core to the game now and then
+				if(++idle % 1024 == 0) Thread.yield();
+				else Thread.onSpinWait();
+				continue;
+			}
+			idle = 0;
+			board.read(snapshot);
+			if(snapshot.tick == answered) continue;
+			answered = snapshot.tick;
+			if(snapshot.state != 0) continue;
+			Snake.Direction best = snapshot.direction;
+			int bestDistance = Integer.MAX_VALUE;
+			for(Snake.Direction dir : DIRECTIONS) {
+				int x = snapshot.headX + BoardState.dx(dir);
+				int y = snapshot.headY + BoardState.dy(dir);
+				if(x < 0 || x >= board.columns || y < 0 || y >= board.rows) continue;
+				byte cell = snapshot.cells[y * board.columns + x];
+				if(cell == CELL_BODY || cell == CELL_WALL || cell == CELL_HEAD) continue;
+				int distance = Math.abs(snapshot.foodX - x) + Math.abs(snapshot.foodY - y);
+				if(distance < bestDistance) {
+					bestDistance = distance;
+					best = dir;
+				}
+			}
+			board.postDirection(best, answered);
+		}
+	}
+}
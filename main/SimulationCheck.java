@@ -0,0 +1,202 @@
+package main;
+
+import java.io.*;
+import java.util.*;
+import javax.swing.*;
+
+/*
+ * SimulationCheck plays the same moves on the live game objects and on BoardState, and
+ * checks that the bots predict exactly what the game does.
+ * 1. Every tick the board is snapshot with BoardState.of(), one direction is chosen, and
+ * BoardState.step() and isSafe() give the expected outcome
+ * 2. The live Snake then moves with setDirection(), update() and
+ * GameMain.processCollision(), the same calls as the game loop
+ * 3. The game must end exactly when step() says so, otherwise the cells of the snake
+ * (head first) and the score must be the same. The food item is random on both sides,
+ * so every tick starts again from the live objects
+ * It runs on an open pit, with wrap-around, on levels/portals.txt, and on a scripted
+ * case where the head enters a portal on the cell the tail is leaving. At last the
+ * HamiltonianBot plays until it has filled the whole board, which must be a win.
+ * The power-ups and the feeding frenzy are not part of BoardState and stay off.
+ * The exit code is 0 on success, 1 on failure.
+ *
+ * Usage: java -Djava.awt.headless=true main.SimulationCheck [games] [seed]
+ */
+public class SimulationCheck {
+	private static final int MAX_TICKS = 3000;
+	//mismatches printed before giving up on a case
+	private static final int MAX_REPORTS = 5;
+
+	private final GameMain game;
+	private final Random random;
+	private int ticks, teleports, mismatches;
+
+	public static void main(String[] args) throws Exception {
+		int games = (args.length > 0) ? Integer.parseInt(args[0]) : 200;
+		long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+		boolean passed = new SimulationCheck(seed).run(games);
+		System.exit(passed ? 0 : 1);
+	}
+
+	public SimulationCheck(long seed) throws Exception {
+		final GameMain[] holder = new GameMain[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				holder[0] = new GameMain();
+			}
+		});
+		game = holder[0];
+		//stop the game loop, this check plays the ticks itself
+		game.gameShutdown();
+		Thread.sleep(500);
+		random = new Random(seed);
+	}
+
+	//Play the given number of random games per case, returns true if all matched
+	public boolean run(int games) throws IOException {
+		Level portals = Level.load(new File("levels/portals.txt"));
+		check("open pit", null, false, games);
+		check("wrap-around", null, true, games);
+		check("portals", portals, false, games);
+		check("portals, wrap-around", portals, true, games);
+		checkTailPortal();
+		checkFill();
+		return mismatches == 0;
+	}
+
+	//The HamiltonianBot fills the whole open pit, which ends the game with a win
+	private void checkFill() {
+		int before = mismatches;
+		ticks = 0;
+		teleports = 0;
+		game.getSnake().regenerate();
+		play(null, false, new HamiltonianBot(), Integer.MAX_VALUE);
+		int length = game.getSnake().getLength();
+		if(mismatches == before && length != GameMain.COLUMNS * GameMain.ROWS) {
+			System.out.println("  the game ended with " + length + " cells of " + GameMain.COLUMNS * GameMain.ROWS);
+			++mismatches;
+		}
+		report("Hamiltonian fill", before);
+	}
+
+	private void check(String name, Level level, boolean wrap, int games) {
+		int before = mismatches;
+		ticks = 0;
+		teleports = 0;
+		for(int g = 0; g < games && mismatches - before < MAX_REPORTS; ++g) {
+			Snake snake = game.getSnake();
+			if(level == null || !level.spawn(snake, 3, random)) snake.regenerate();
+			play(level, wrap, null, MAX_TICKS);
+		}
+		report(name, before);
+	}
+
+	//A snake of 4 cells turning left on every tick chases its tail around a square of
+	//2x2 cells: on the third tick its head enters the cell the tail is leaving, a portal
+	private void checkTailPortal() throws IOException {
+		int before = mismatches;
+		ticks = 0;
+		teleports = 0;
+		StringBuilder text = new StringBuilder("SNAKE-LEVEL " + GameMain.COLUMNS + " " + GameMain.ROWS + "\n");
+		for(int y = 0; y < GameMain.ROWS; ++y) {
+			for(int x = 0; x < GameMain.COLUMNS; ++x) {
+				text.append((x == 10 && y == 11) || (x == 30 && y == 30) ? 'a' : '.');
+			}
+			text.append('\n');
+		}
+		File file = File.createTempFile("tail-portal", ".txt");
+		try {
+			Writer out = new FileWriter(file);
+			try {
+				out.write(text.toString());
+			}finally {
+				out.close();
+			}
+			Level level = Level.load(file);
+			game.getSnake().regenerate(10, 10, 4, Snake.Direction.UP);
+			play(level, false, new SnakeController() {
+				@Override
+				public Snake.Direction nextDirection(BoardView board) {
+					return NeuralController.turnLeft(board.getDirection());
+				}
+			}, 3);
+		}finally {
+			file.delete();
+		}
+		if(teleports == 0) {
+			System.out.println("FAIL tail portal: the head did not go through the portal");
+			++mismatches;
+		}
+		report("tail portal", before);
+	}
+
+	//Play one game to the end, or for maxTicks, with the moves of the bot. Without a bot,
+	//mostly safe random moves, so that the snake lives long enough to grow and go
+	//through the portals
+	private void play(Level level, boolean wrap, SnakeController bot, int maxTicks) {
+		Snake snake = game.getSnake();
+		Food food = game.getFood();
+		snake.setWrap(wrap);
+		game.setLevel(level);
+		food.regenerate(snake, level);
+		game.score = 0;
+		Snake.Direction[] directions = Snake.Direction.values();
+		for(int t = 0; t < maxTicks; ++t) {
+			GameMain.state = GameMain.GameState.PLAYING;
+			BoardState board = BoardState.of(snake, food, game.score, level);
+			Snake.Direction dir;
+			if(bot != null) {
+				dir = bot.nextDirection(board);
+			}else {
+				java.util.List<Snake.Direction> safe = new ArrayList<Snake.Direction>();
+				for(Snake.Direction d : directions) {
+					if(board.isSafe(d)) safe.add(d);
+				}
+				dir = (safe.isEmpty() || random.nextInt(50) == 0) ? directions[random.nextInt(directions.length)]
+						: safe.get(random.nextInt(safe.size()));
+			}
+			BoardState expected = board.step(dir, new Random(random.nextLong()));
+
+			snake.setDirection(dir);
+			snake.update();
+			int movedX = snake.getHeadX(), movedY = snake.getHeadY();
+			game.processCollision();
+			++ticks;
+			if(movedX != snake.getHeadX() || movedY != snake.getHeadY()) ++teleports;
+
+			boolean over = (GameMain.state == GameMain.GameState.GAMEOVER);
+			//the last food item fills the board, a safe move that ends the game
+			boolean died = expected.isOver() && expected.getScore() == board.getScore();
+			String problem = null;
+			if(board.isSafe(dir) == died) {
+				problem = "isSafe(" + dir + ") is " + board.isSafe(dir) + " but step() " + (died ? "dies" : "goes on");
+			}else if(over != expected.isOver()) {
+				problem = "the game " + (over ? "ended" : "went on") + ", step() " + (expected.isOver() ? "ends" : "goes on");
+			}else if(!died && !Arrays.equals(SnakeState.of(snake).getCells(), expected.getSnake().getCells())) {
+				problem = "the snake moved to " + cells(SnakeState.of(snake)) + ", step() to " + cells(expected.getSnake());
+			}else if(!died && game.score != expected.getScore()) {
+				problem = "score " + game.score + ", step() " + expected.getScore();
+			}
+			if(problem != null) {
+				++mismatches;
+				System.out.println("  tick " + t + ", " + dir + " from " + board + ": " + problem);
+				return;
+			}
+			if(over) return;
+		}
+	}
+
+	private void report(String name, int before) {
+		System.out.printf("%s %s: %d ticks, %d teleports%n", (mismatches == before) ? "PASS" : "FAIL",
+				name, ticks, teleports);
+	}
+
+	private static String cells(SnakeState snake) {
+		StringBuilder sb = new StringBuilder();
+		int[] cells = snake.getCells();
+		for(int i = 0; i < cells.length && i < 6; ++i) {
+			sb.append('(').append(cells[i] % snake.getColumns()).append(',').append(cells[i] / snake.getColumns()).append(')');
+		}
+		return (cells.length > 6) ? sb + "..." : sb.toString();
+	}
+}
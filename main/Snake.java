@@ -9,8 +9,10 @@ import java.util.*;
  * of the snake . The last is the "tail". As the snake moves, it adds one cell to the head
  * and then removes one from the tail
  * if the snake eats food, the head adds one cell but the tail will not shrink
+ * In wrap-around mode a head leaving the board starts a new segment on the other side,
+ * so every segment stays a straight run inside the board
  * */
-public class Snake {
+public class Snake implements SnakeView {
 	private static final int INIT_LENGTH = 3; //snake's cells
 	public static enum Direction {
 		UP, DOWN, LEFT, RIGHT
@@ -24,9 +26,14 @@ public class Snake {
 	private java.util.List<SnakeSegment> snakeSegments = new ArrayList<SnakeSegment>();
 	
 	private boolean dirUpdatePending; //Pending update for a direction change?
+	private boolean wrap; //the edges of the board lead to the opposite edges
 	
 	private Random random = new Random(); // randomly regenerating a snake
 	
+	//default constructor, the snake is empty until regenerated
+	public Snake() {
+	}
+	
 	//Regenerate the snake
 	public void regenerate() {
 		snakeSegments.clear();
@@ -41,6 +48,14 @@ public class Snake {
 		
 	}
 	
+	//Regenerate the snake as one straight segment at the given place
+	public void regenerate(int headX, int headY, int length, Snake.Direction direction) {
+		snakeSegments.clear();
+		this.direction = direction;
+		snakeSegments.add(new SnakeSegment(headX, headY, length, direction));
+		dirUpdatePending = false;
+	}
+	
 	//Change the direction of the snake, but no 180 degree turn allowed
 	public void setDirection(Snake.Direction newDir) {
 		 // Ignore if there is a direction change pending and no 180 degree turn
@@ -67,10 +82,40 @@ public class Snake {
 	//if collision detected
 	public void update() {
 		SnakeSegment headSegment = snakeSegments.get(0);
+		if(wrap) {
+			int x = headSegment.getHeadX() + BoardState.dx(direction);
+			int y = headSegment.getHeadY() + BoardState.dy(direction);
+			int wrappedX = BoardState.wrap(x, GameMain.COLUMNS);
+			int wrappedY = BoardState.wrap(y, GameMain.ROWS);
+			if(((x ^ wrappedX) | (y ^ wrappedY)) != 0) {
+				//crossing an edge: the head continues in a new segment on the other side,
+				//replacing the empty segment of a turn made on this tick
+				if(headSegment.getLength() == 0) snakeSegments.remove(0);
+				snakeSegments.add(0, new SnakeSegment(wrappedX, wrappedY, 1, direction));
+				dirUpdatePending = false;
+				return;
+			}
+		}
 		headSegment.grow();
 		dirUpdatePending = false; //can process the key input again
 	}
 	
+	//Turn wrap-around mode on or off
+	public void setWrap(boolean wrap) {
+		this.wrap = wrap;
+	}
+	
+	public boolean isWrap() {
+		return wrap;
+	}
+	
+	//Move the head to the given cell, coming out of a portal. The cell the head was
+	//on stays in the body and the snake keeps its length
+	public void teleport(int x, int y) {
+		snakeSegments.add(0, new SnakeSegment(x, y, 1, direction));
+		shrink();
+	}
+	
 	//Not eaten a food item. Shrink the tail by one cell
 	public void shrink() {
 		SnakeSegment tailSegment = snakeSegments.get(snakeSegments.size()-1);
@@ -79,14 +124,69 @@ public class Snake {
 	}
 	
 	//Get the X,Y coordinate of the cell that contains the snake's head segment
+	@Override
 	public int getHeadX() {
 		return snakeSegments.get(0).getHeadX();
 	}
+	@Override
 	public int getHeadY() {
 		return snakeSegments.get(0).getHeadY();
 	}
 	
+	//Get the X,Y coordinate of the cell that contains the snake's tail
+	public int getTailX() {
+		return snakeSegments.get(snakeSegments.size() - 1).getTailX();
+	}
+	public int getTailY() {
+		return snakeSegments.get(snakeSegments.size() - 1).getTailY();
+	}
+	
+	//Set the colors of the body and the head, to tell the snakes of an arena apart
+	public void setColors(Color body, Color head) {
+		this.color = body;
+		this.colorHead = head;
+	}
+	
+	//Get the current direction of the snake's head
+	@Override
+	public Snake.Direction getDirection() {
+		return direction;
+	}
+	
+	//Get the number of cells of the snake
+	@Override
+	public int getLength() {
+		int length = 0;
+		for(int i = 0; i < snakeSegments.size(); ++i) {
+			length += snakeSegments.get(i).getLength();
+		}
+		return length;
+	}
+	
+	//Copy the cells of the snake into out, head first, as y * columns + x
+	//Returns the number of cells, out must have room for getLength() of them
+	@Override
+	public int getCells(int[] out, int columns) {
+		int n = 0;
+		for(int s = 0; s < snakeSegments.size(); ++s) {
+			SnakeSegment segment = snakeSegments.get(s);
+			int x = segment.getHeadX();
+			int y = segment.getHeadY();
+			for(int i = 0; i < segment.getLength(); ++i) {
+				out[n++] = y * columns + x;
+				switch(segment.getDirection()) {
+				case LEFT: ++x; break;
+				case RIGHT: --x; break;
+				case UP: ++y; break;
+				case DOWN: --y; break;
+				}
+			}
+		}
+		return n;
+	}
+	
 	// Returns true if the snake contains the given (x,y) cell, Used in collision dectection
+	@Override
 	public boolean contains(int x, int y) {
 		for(int i =0; i< snakeSegments.size(); ++i) {
 			SnakeSegment segment = snakeSegments.get(i);
@@ -100,9 +200,19 @@ public class Snake {
 	public boolean eatItself() {
 		int headX = getHeadX();
 		int headY = getHeadY();
-		//eat itself if the headX, headY hits its body segment (4th onwards)
-		for(int i =3; i <snakeSegments.size(); ++i) {
+		//eat itself if the headX, headY hits another segment. The head is in the first
+		//segment that is not empty: a key press adds an empty segment in front of it at
+		//any time, even between update() and the collision check. A straight segment holds
+		//a cell only once, so that whole segment is skipped. The others are all checked,
+		//a portal or an edge in wrap-around mode breaks the run
+		boolean headSeen = false;
+		for(int i =0; i <snakeSegments.size(); ++i) {
 			SnakeSegment segment = snakeSegments.get(i);
+			if(segment.getLength() == 0) continue;
+			if(!headSeen) {
+				headSeen = true;
+				continue;
+			}
 			if(segment.contains(headX, headY)) return true;
 		}
 		return false;
@@ -110,20 +220,18 @@ public class Snake {
 	
 	// Draw itself
 	public void draw(Graphics g) {
-		g.setColor(color);
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+	
+	//Draw itself at the cell size of the tiles
+	@Override
+	public void draw(Graphics g, Tiles tiles) {
 		for(int i = 0; i< snakeSegments.size(); ++i) {
-			snakeSegments.get(i).draw(g); //draw all the segments
+			snakeSegments.get(i).draw(g, tiles, color); //draw all the segments
 		}
 		
 		if(snakeSegments.size() > 0) {
-			g.setColor(colorHead);
-			g.fill3DRect(
-					getHeadX() * GameMain.CELL_SIZE, 
-					getHeadY() * GameMain.CELL_SIZE, 
-					GameMain.CELL_SIZE - 1, 
-					GameMain.CELL_SIZE - 1,
-					true
-					);
+			tiles.draw(g, getHeadX(), getHeadY(), colorHead, Tiles.BODY);
 		}
 	}
 	
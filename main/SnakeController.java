@@ -0,0 +1,49 @@
+package main;
+
+import java.util.*;
+
+/*
+ * A SnakeController plays the game instead of the arrow keys. Once per tick, before the
+ * snake moves, the game asks it for a direction, which goes to Snake.setDirection()
+ * like a key press.
+ * Third-party controllers are found with java.util.ServiceLoader: put the class name in
+ * META-INF/services/main.SnakeController of the jar (or directory) on the class path,
+ * and give the class a public no-argument constructor.
+ * Controllers run on their own thread with a deadline per tick (see ControllerRunner),
+ * so they may take their time but must answer before the next tick.
+ */
+public interface SnakeController {
+	//Choose the direction for the next move
+	Snake.Direction nextDirection(BoardView board);
+
+	//Choose the direction for the next move, knowing the answer is needed within
+	//deadlineNanos. A controller that searches can fit its search to it
+	default Snake.Direction nextDirection(BoardView board, long deadlineNanos) {
+		return nextDirection(board);
+	}
+
+	//Release the threads the controller holds, when it stops playing. Called on the
+	//controller thread; the controller may be selected and asked again later
+	default void close() {
+	}
+
+	//The name shown in the Autopilot menu
+	default String getName() {
+		return getClass().getSimpleName();
+	}
+
+	//All the controllers found on the class path. A provider that fails to load is skipped
+	static java.util.List<SnakeController> discover() {
+		java.util.List<SnakeController> controllers = new ArrayList<SnakeController>();
+		Iterator<SnakeController> it = ServiceLoader.load(SnakeController.class).iterator();
+		while(true) {
+			try {
+				if(!it.hasNext()) break;
+				controllers.add(it.next());
+			}catch(ServiceConfigurationError e) {
+				System.err.println("Skipping controller: " + e.getMessage());
+			}
+		}
+		return controllers;
+	}
+}
@@ -1,4 +1,5 @@
 package main;
+import java.awt.Color;
 import java.awt.Graphics;
 /* 
  * SnakeSegment represents one horizontal or vertical segment of a snake
@@ -58,8 +59,13 @@ public class SnakeSegment {
 		return headY;
 	}
 	
+	//Get the direction this segment is moving to
+	public Snake.Direction getDirection() {
+		return direction;
+	}
+	
 	//Get the X, Y coordinate of the cell that contains the snake's tail
-	private int getTailX() {
+	int getTailX() {
 		if(direction == Snake.Direction.LEFT) {
 			return headX + length -1;
 		}else if(direction == Snake.Direction.RIGHT) {
@@ -71,7 +77,7 @@ public class SnakeSegment {
 		
 	}
 	
-	private int getTailY() {
+	int getTailY() {
 		if(direction == Snake.Direction.DOWN) {
 			return headY - length + 1;
 		}else if(direction == Snake.Direction.UP) {
@@ -99,52 +105,23 @@ public class SnakeSegment {
 		return false;
 	}
 	
-	//Draw this segment
+	//Draw this segment in the current color
 	
 	public void draw(Graphics g) {
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE), g.getColor());
+	}
+	
+	//Draw this segment at the cell size of the tiles
+	public void draw(Graphics g, Tiles tiles, Color color) {
 		int x = headX;
 		int y = headY;
-		switch(direction) {
-		case LEFT:
-			for(int i =0; i< length; ++i) {
-				g.fill3DRect(
-						x * GameMain.CELL_SIZE, 
-						y * GameMain.CELL_SIZE, 
-						GameMain.CELL_SIZE - 1, 
-						GameMain.CELL_SIZE - 1, true);
-				++x;
-			}
-			break;
-		case RIGHT:
-			for(int i =0; i< length; ++i) {
-				g.fill3DRect(
-						x * GameMain.CELL_SIZE, 
-						y * GameMain.CELL_SIZE, 
-						GameMain.CELL_SIZE - 1, 
-						GameMain.CELL_SIZE - 1, true);
-				--x;
-			}
-			break;
-		case UP:
-			for(int i =0; i< length; ++i) {
-				g.fill3DRect(
-						x * GameMain.CELL_SIZE, 
-						y * GameMain.CELL_SIZE, 
-						GameMain.CELL_SIZE - 1, 
-						GameMain.CELL_SIZE - 1, true);
-				++y;
-			}
-			break;
-		case DOWN:
-			for(int i =0; i< length; ++i) {
-				g.fill3DRect(
-						x * GameMain.CELL_SIZE, 
-						y * GameMain.CELL_SIZE, 
-						GameMain.CELL_SIZE - 1, 
-						GameMain.CELL_SIZE - 1, true);
-				--y;
-			}
-			break;
+		//walk from the head towards the tail
+		int dx = -BoardState.dx(direction);
+		int dy = -BoardState.dy(direction);
+		for(int i =0; i< length; ++i) {
+			tiles.draw(g, x, y, color, Tiles.BODY);
+			x += dx;
+			y += dy;
 		}
 	}
 	
@@ -0,0 +1,216 @@
+package main;
+
+import java.awt.*;
+
+/*
+ * SnakeState is an immutable snake, for bots that need to try many moves ahead.
+ * Moving returns a new SnakeState that shares almost everything with the old one:
+ * 1. The body is a linked list of cells, head first. A move adds one node in front;
+ * the cells past "length" are simply ignored, so the tail costs nothing to shrink
+ * 2. Each cell of the board remembers the tick when the head last entered it. A cell
+ * is part of the body if it was entered less than "length" ticks ago, so collision
+ * checks do not walk the body
+ * Cells are numbered y * columns + x.
+ */
+public final class SnakeState implements SnakeView {
+	//stamp of a cell that was never entered
+	private static final int NEVER = Integer.MIN_VALUE / 2;
+
+	//one cell of the body, linked towards the tail
+	private static final class Node {
+		final int cell;
+		final Node next;
+		final int depth; //number of nodes from here to the end of the list
+
+		Node(int cell, Node next) {
+			this.cell = cell;
+			this.next = next;
+			this.depth = (next == null) ? 1 : next.depth + 1;
+		}
+	}
+
+	private final int columns, rows;
+	private final Node head;
+	private final int length;
+	private final Snake.Direction direction;
+	private final int tick; //number of moves, the head cell is stamped with it
+	private final PersistentIntGrid stamps;
+
+	private SnakeState(int columns, int rows, Node head, int length, Snake.Direction direction,
+			int tick, PersistentIntGrid stamps) {
+		this.columns = columns;
+		this.rows = rows;
+		this.head = head;
+		this.length = length;
+		this.direction = direction;
+		this.tick = tick;
+		this.stamps = stamps;
+	}
+
+	//Snapshot a live snake on the game board
+	public static SnakeState of(SnakeView snake) {
+		return of(snake, GameMain.COLUMNS, GameMain.ROWS);
+	}
+
+	public static SnakeState of(SnakeView snake, int columns, int rows) {
+		if(snake instanceof SnakeState && ((SnakeState) snake).columns == columns
+				&& ((SnakeState) snake).rows == rows) {
+			return (SnakeState) snake;
+		}
+		int[] cells = new int[snake.getLength()];
+		snake.getCells(cells, columns);
+		return of(cells, snake.getDirection(), columns, rows);
+	}
+
+	//Build a snake from its cells, head first
+	public static SnakeState of(int[] cells, Snake.Direction direction, int columns, int rows) {
+		int tick = cells.length;
+		PersistentIntGrid stamps = PersistentIntGrid.filled(columns * rows, NEVER);
+		Node node = null;
+		//link from the tail, which was entered the longest time ago
+		for(int i = cells.length - 1; i >= 0; --i) {
+			node = new Node(cells[i], node);
+			stamps = stamps.set(cells[i], tick - i);
+		}
+		return new SnakeState(columns, rows, node, cells.length, direction, tick, stamps);
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getHeadX() {
+		return head.cell % columns;
+	}
+
+	@Override
+	public int getHeadY() {
+		return head.cell / columns;
+	}
+
+	public int getHeadCell() {
+		return head.cell;
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public Snake.Direction getDirection() {
+		return direction;
+	}
+
+	//The cell that will leave the body on the next move, unless the snake grows
+	public int getTailCell() {
+		Node node = head;
+		for(int i = 1; i < length; ++i) node = node.next;
+		return node.cell;
+	}
+
+	// Returns true if the snake contains the given (x,y) cell
+	@Override
+	public boolean contains(int x, int y) {
+		if(x < 0 || x >= columns || y < 0 || y >= rows) return false;
+		return containsCell(y * columns + x);
+	}
+
+	public boolean containsCell(int cell) {
+		return tick - stamps.get(cell) < length;
+	}
+
+	//Returns true if the head, moved to the given cell, hits the body that is left
+	//after the move. The tail moves away at the same time unless the snake grows
+	public boolean hitsBody(int cell, boolean grow) {
+		return (tick + 1) - stamps.get(cell) < (grow ? length + 1 : length);
+	}
+
+	//The direction the snake would really move to: no 180 degree turn allowed
+	public Snake.Direction turn(Snake.Direction newDir) {
+		return (newDir == opposite(direction)) ? direction : newDir;
+	}
+
+	static Snake.Direction opposite(Snake.Direction dir) {
+		switch(dir) {
+		case UP: return Snake.Direction.DOWN;
+		case DOWN: return Snake.Direction.UP;
+		case LEFT: return Snake.Direction.RIGHT;
+		default: return Snake.Direction.LEFT;
+		}
+	}
+
+	//Move the head to the given cell, which the caller has checked to be on the board.
+	//The snake grows by one cell if it has eaten
+	public SnakeState moveTo(int cell, Snake.Direction dir, boolean grow) {
+		int newLength = grow ? length + 1 : length;
+		Node node = new Node(cell, head);
+		//drop the cells behind the tail once they are twice as many as the body,
+		//this keeps the memory bounded at an amortized O(1) per move
+		if(node.depth > 2 * newLength + 16) node = copy(node, newLength);
+		return new SnakeState(columns, rows, node, newLength, dir, tick + 1, stamps.set(cell, tick + 1));
+	}
+
+	private static Node copy(Node node, int count) {
+		int[] cells = new int[count];
+		for(int i = 0; i < count; ++i) {
+			cells[i] = node.cell;
+			node = node.next;
+		}
+		Node copy = null;
+		for(int i = count - 1; i >= 0; --i) copy = new Node(cells[i], copy);
+		return copy;
+	}
+
+	//The cells of the body, head first
+	public int[] getCells() {
+		int[] cells = new int[length];
+		getCells(cells);
+		return cells;
+	}
+
+	//Copy the cells of the body into out, head first, numbered on a board of the given
+	//width. Returns the number of cells
+	@Override
+	public int getCells(int[] out, int columns) {
+		getCells(out);
+		if(columns != this.columns) {
+			for(int i = 0; i < length; ++i) out[i] = out[i] / this.columns * columns + out[i] % this.columns;
+		}
+		return length;
+	}
+
+	//Copy the cells of the body into out, head first. Returns the number of cells
+	public int getCells(int[] out) {
+		Node node = head;
+		for(int i = 0; i < length; ++i) {
+			out[i] = node.cell;
+			node = node.next;
+		}
+		return length;
+	}
+
+	// Draw itself, the same way as Snake does
+	public void draw(Graphics g) {
+		draw(g, Tiles.forCellSize(GameMain.CELL_SIZE));
+	}
+
+	@Override
+	public void draw(Graphics g, Tiles tiles) {
+		int[] cells = getCells();
+		for(int i = 0; i < cells.length; ++i) {
+			tiles.draw(g, cells[i] % columns, cells[i] / columns, (i == 0) ? Color.GREEN : Color.BLACK, Tiles.BODY);
+		}
+	}
+
+	// For debugging
+	public String toString() {
+		return "SnakeState[dir=" + direction + ", head=(" + getHeadX() + "," + getHeadY()
+				+ "), length=" + length + "]";
+	}
+}
@@ -0,0 +1,31 @@
+package main;
+
+import java.awt.*;
+
+/*
+ * SnakeView is the read-only side of a snake, shared by the live Snake and the immutable
+ * SnakeState, so that code which only looks at a snake takes either one without a copy.
+ * Cells are addressed by (x,y), or numbered y * columns + x.
+ */
+public interface SnakeView {
+	//The X, Y coordinate of the cell that contains the snake's head
+	int getHeadX();
+
+	int getHeadY();
+
+	//The current direction of the snake's head
+	Snake.Direction getDirection();
+
+	//Number of cells of the snake
+	int getLength();
+
+	//Returns true if the snake contains the given (x,y) cell
+	boolean contains(int x, int y);
+
+	//Copy the cells of the snake into out, head first, as y * columns + x
+	//Returns the number of cells, out must have room for getLength() of them
+	int getCells(int[] out, int columns);
+
+	//Draw itself at the cell size of the tiles
+	void draw(Graphics g, Tiles tiles);
+}
@@ -0,0 +1,167 @@
+package main;
+
+import java.lang.management.*;
+import java.util.*;
+import javax.sound.sampled.*;
+import javax.swing.*;
+
+/*
+ * SoakTest plays the game for a long time at a high tick rate, with a controller and
+ * regular Game > New restarts, and checks that the process does not degrade.
+ * Every sample period it records:
+ * 1. bytes allocated per tick, by all the live threads
+ * 2. the number of live threads
+ * 3. the heap used after a full GC
+ * 4. the number of open audio lines
+ * At the end the median of the last third of the samples is compared with the median
+ * of the first third (after a warm up); the test fails if any of them has grown.
+ * It also fails if the game stops ticking. The exit code is 0 on success, 1 on failure.
+ *
+ * Usage: java -Djava.awt.headless=true main.SoakTest [minutes] [ticksPerSec] [restartSec]
+ */
+public class SoakTest {
+	private static final long SAMPLE_MILLIS = 10000;
+	private static final String[] METRICS = {
+		"alloc bytes/tick", "live threads", "heap after GC", "audio lines"
+	};
+	//growth allowed for each metric, relative to the early median, and absolute
+	private static final double[] RELATIVE_SLACK = { 0.5, 0.0, 0.25, 0.0 };
+	private static final double[] ABSOLUTE_SLACK = { 256, 2, 4 << 20, 0 };
+
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+	//one row per sample, one column per metric
+	private final java.util.List<double[]> samples = new ArrayList<double[]>();
+	//bytes allocated by each live thread at the last sample, and by the threads ended since
+	private Map<Long, Long> threadAllocated = new HashMap<Long, Long>();
+	private long endedThreadBytes;
+
+	public static void main(String[] args) throws Exception {
+		double minutes = (args.length > 0) ? Double.parseDouble(args[0]) : 60;
+		int ticksPerSec = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+		int restartSec = (args.length > 2) ? Integer.parseInt(args[2]) : 30;
+		boolean passed = new SoakTest().run((long) (minutes * 60000), ticksPerSec, restartSec * 1000L);
+		System.exit(passed ? 0 : 1);
+	}
+
+	//Run the game for the given time, returns true if nothing grew
+	public boolean run(long durationMillis, int ticksPerSec, long restartMillis) throws Exception {
+		final GameMain[] holder = new GameMain[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				holder[0] = new GameMain();
+			}
+		});
+		final GameMain game = holder[0];
+		GameMain.updatePeriodNsec = 1000000000L / ticksPerSec;
+		game.setController(new HamiltonianBot());
+
+		System.out.println("seconds," + String.join(",", METRICS));
+		long start = System.currentTimeMillis();
+		long lastRestart = start;
+		long lastTick = game.getTick();
+		long lastAllocated = allocatedBytes();
+		boolean stalled = false;
+		//at least 30 samples on a short run
+		long sampleMillis = Math.max(1000, Math.min(SAMPLE_MILLIS, durationMillis / 30));
+		while(System.currentTimeMillis() - start < durationMillis) {
+			Thread.sleep(sampleMillis);
+			long now = System.currentTimeMillis();
+
+			long tick = game.getTick();
+			long allocated = allocatedBytes();
+			if(tick == lastTick) {
+				System.out.println("FAIL: no game update during the last sample");
+				stalled = true;
+				break;
+			}
+			System.gc();
+			double[] sample = {
+				(double) (allocated - lastAllocated) / (tick - lastTick),
+				threadBean.getThreadCount(),
+				memoryBean.getHeapMemoryUsage().getUsed(),
+				openAudioLines()
+			};
+			samples.add(sample);
+			lastTick = tick;
+			lastAllocated = allocated;
+			System.out.printf("%d,%.0f,%.0f,%.0f,%.0f%n", (now - start) / 1000,
+					sample[0], sample[1], sample[2], sample[3]);
+
+			//Game > New, also restarts a game that has ended
+			if(now - lastRestart >= restartMillis || GameMain.state == GameMain.GameState.GAMEOVER) {
+				SwingUtilities.invokeAndWait(new Runnable() {
+					public void run() {
+						game.newGame();
+					}
+				});
+				lastRestart = now;
+			}
+		}
+		game.gameShutdown();
+		return !stalled & checkGrowth();
+	}
+
+	//Compare the late samples with the early ones, skipping the first 10% as warm up
+	private boolean checkGrowth() {
+		int warmup = samples.size() / 10;
+		int third = (samples.size() - warmup) / 3;
+		if(third == 0) {
+			System.out.println("Not enough samples to check for growth");
+			return true;
+		}
+		boolean passed = true;
+		for(int m = 0; m < METRICS.length; ++m) {
+			double early = median(warmup, warmup + third, m);
+			double late = median(samples.size() - third, samples.size(), m);
+			double limit = early * (1 + RELATIVE_SLACK[m]) + ABSOLUTE_SLACK[m];
+			boolean ok = late <= limit;
+			System.out.printf("%s %s: early %.0f, late %.0f, limit %.0f%n",
+					ok ? "PASS" : "FAIL", METRICS[m], early, late, limit);
+			passed &= ok;
+		}
+		return passed;
+	}
+
+	private double median(int from, int to, int metric) {
+		double[] values = new double[to - from];
+		for(int i = from; i < to; ++i) values[i - from] = samples.get(i)[metric];
+		Arrays.sort(values);
+		return values[values.length / 2];
+	}
+
+	//Bytes allocated so far by all the threads, if the JVM can tell. The total never goes
+	//down: a thread that has ended (sounds, controllers) still counts for what it had
+	//allocated at the last sample
+	private long allocatedBytes() {
+		if(!(threadBean instanceof com.sun.management.ThreadMXBean)) return 0;
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threadBean;
+		long[] ids = bean.getAllThreadIds();
+		long[] bytes = bean.getThreadAllocatedBytes(ids);
+		Map<Long, Long> live = new HashMap<Long, Long>();
+		for(int i = 0; i < ids.length; ++i) {
+			if(bytes[i] > 0) live.put(ids[i], bytes[i]);
+		}
+		for(Map.Entry<Long, Long> entry : threadAllocated.entrySet()) {
+			if(!live.containsKey(entry.getKey())) endedThreadBytes += entry.getValue();
+		}
+		threadAllocated = live;
+		long total = endedThreadBytes;
+		for(long b : live.values()) total += b;
+		return total;
+	}
+
+	//Audio lines opened on all the mixers
+	private static int openAudioLines() {
+		int count = 0;
+		try {
+			for(Mixer.Info info : AudioSystem.getMixerInfo()) {
+				Mixer mixer = AudioSystem.getMixer(info);
+				count += mixer.getSourceLines().length + mixer.getTargetLines().length;
+			}
+		}catch(RuntimeException e) {
+			//no audio system
+		}
+		return count;
+	}
+}
@@ -25,8 +25,8 @@ public enum SoundEffect {
 	public static Volume volume = Volume.LOW;
 	//Each sound effect has its own clip, loaded with its own sound file
 	private Clip clip;
-	public boolean loop = false;
-	private boolean loopStarted;
+	public volatile boolean loop = false;
+	private volatile boolean loopStarted;
 	
 	//Constructor to construct each element of the enum with its own sound file
 	SoundEffect(String soundFileName){
@@ -46,10 +46,14 @@ public enum SoundEffect {
 			e.printStackTrace();
 		}catch (IOException e) {
 			e.printStackTrace();
+		}catch (IllegalArgumentException e) {
+			//no audio device supports the clip, the sound effect stays silent
+			System.err.println("Sound disabled: " + e.getMessage());
 		}
 	}
 	
 	public void play() {
+		if(clip == null) return; //no audio device
 		if(volume != volume.MUTE) {
 			if(clip.isRunning()) clip.stop(); //stop the player if it is still running
 			clip.setFramePosition(0);
@@ -58,38 +62,51 @@ public enum SoundEffect {
 	}
 	
 	public void loop() {
-		new Thread(new Runnable() {
+		if(clip == null) return; //no audio device
+		Thread looper = new Thread(new Runnable() {
 			
 			@Override
 			public void run() {
-				while(loop) {
+				while(true) {
+					synchronized(SoundEffect.this) {
+						if(!loop) {
+							loopStarted = false;
+							return;
+						}
+					}
 					if(volume != volume.MUTE && !clip.isRunning()) {
 						clip.loop(Clip.LOOP_CONTINUOUSLY); //Start playing
 					}
 					try {
-						Thread.sleep(clip.getMicrosecondLength());
+						//the clip length is in microseconds
+						Thread.sleep(Math.max(1, clip.getMicrosecondLength() / 1000));
 					}catch(InterruptedException e) {
 						e.printStackTrace();
 					}
 				}
 				
 			}
-		}).start();
+		}, "sound-loop-" + name());
+		looper.setDaemon(true);
+		looper.start();
 	}
 	
-	public void startLoop() {
+	public synchronized void startLoop() {
+		loop = true;
+		//one looping thread per sound effect, it keeps running until stopLoop()
 		if(loopStarted != true) {
-			loop = true;
+			loopStarted = true;
 			loop();
 		}
 	}
 	
-	public void stopLoop() {
+	public synchronized void stopLoop() {
 		loop = false;
-		clip.loop(0);
+		if(clip != null) clip.loop(0);
 	}
 	
 	public void stop() {
+		if(clip == null) return;
 		clip.stop();
 		clip.setFramePosition(0);
 	}
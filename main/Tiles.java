@@ -0,0 +1,149 @@
+package main;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/*
+ * Tiles draws the cells of the board from images rendered once per cell size, instead
+ * of rasterizing a 3D rectangle or an oval for every cell of every frame.
+ * 1. Each shape and color is rendered the first time it is drawn at a cell size. Drawing
+ * finds it in a hash table by color and shape, without taking a lock
+ * 2. forCellSize() keeps the tile sets of the last few cell sizes in an LRU cache, so
+ * zooming back and forth or resizing the window does not render them again, and the
+ * memory stays bounded however many sizes the window goes through
+ * Coordinates are cells, not pixels.
+ */
+public final class Tiles {
+	//the shapes of a cell
+	public static final int RAISED = 0; //fill3DRect of the whole cell (food, walls)
+	public static final int BODY = 1; //fill3DRect one pixel smaller (snake)
+	public static final int SUNKEN = 2; //lowered fill3DRect of the whole cell (portals)
+	public static final int OVAL = 3; //fillOval of the whole cell (power-ups)
+
+	//number of cell sizes kept
+	private static final int CACHED_SIZES = 6;
+	//tiles kept per cell size, there are only a few colors in the game
+	private static final int MAX_TILES = 64;
+
+	private static final Map<Integer, Tiles> cache = new LinkedHashMap<Integer, Tiles>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Tiles> eldest) {
+			return size() > CACHED_SIZES;
+		}
+	};
+	//the last one asked for, almost every frame asks for the same
+	private static volatile Tiles last;
+
+	private final int cellSize;
+	//the tiles rendered so far. Drawing only reads it, without a lock; a new tile
+	//replaces it with a bigger copy, which happens a few times per cell size
+	private volatile Table table = new Table(16);
+	private int count;
+
+	//open addressing on key (rgb and shape), an empty slot has no image
+	private static final class Table {
+		final long[] keys;
+		final BufferedImage[] images;
+
+		Table(int capacity) {
+			keys = new long[capacity];
+			images = new BufferedImage[capacity];
+		}
+
+		//the slot of key, or the empty slot where it would go
+		int slot(long key) {
+			int mask = keys.length - 1;
+			int i = (int) (key ^ (key >>> 29)) * 0x9E3779B9 >>> 16 & mask;
+			while(images[i] != null && keys[i] != key) i = (i + 1) & mask;
+			return i;
+		}
+	}
+
+	private Tiles(int cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	//The tiles for the given cell size, in pixels
+	public static Tiles forCellSize(int cellSize) {
+		Tiles tiles = last;
+		if(tiles != null && tiles.cellSize == cellSize) return tiles;
+		synchronized(cache) {
+			tiles = cache.get(cellSize);
+			if(tiles == null) {
+				tiles = new Tiles(cellSize);
+				cache.put(cellSize, tiles);
+			}
+		}
+		last = tiles;
+		return tiles;
+	}
+
+	public int getCellSize() {
+		return cellSize;
+	}
+
+	//Draw one cell with the given color and shape
+	public void draw(Graphics g, int x, int y, Color color, int shape) {
+		g.drawImage(tile(color, shape), x * cellSize, y * cellSize, null);
+	}
+
+	private BufferedImage tile(Color color, int shape) {
+		long key = ((long) color.getRGB() << 8) | shape;
+		Table current = table;
+		BufferedImage image = current.images[current.slot(key)];
+		return (image != null) ? image : render(key, color, shape);
+	}
+
+	//Render a missing tile and publish it in a copy of the table
+	private synchronized BufferedImage render(long key, Color color, int shape) {
+		Table current = table;
+		int slot = current.slot(key);
+		if(current.images[slot] != null) return current.images[slot]; //rendered meanwhile
+		if(count == MAX_TILES) {
+			//many colors: start again rather than grow
+			current = new Table(16);
+			count = 0;
+		}
+		//keep the table at most half full, so that a lookup probes a slot or two
+		Table copy = new Table(Math.max(current.keys.length, Integer.highestOneBit(count + 1) * 4));
+		for(int i = 0; i < current.keys.length; ++i) {
+			if(current.images[i] == null) continue;
+			int j = copy.slot(current.keys[i]);
+			copy.keys[j] = current.keys[i];
+			copy.images[j] = current.images[i];
+		}
+		BufferedImage image = render(color, shape);
+		slot = copy.slot(key);
+		copy.keys[slot] = key;
+		copy.images[slot] = image;
+		++count;
+		table = copy;
+		return image;
+	}
+
+	//Rasterize a tile the same way the cells used to be drawn directly
+	private BufferedImage render(Color color, int shape) {
+		BufferedImage image = new BufferedImage(cellSize, cellSize, BufferedImage.TYPE_INT_ARGB_PRE);
+		Graphics2D g = image.createGraphics();
+		g.setColor(color);
+		switch(shape) {
+		case RAISED:
+			g.fill3DRect(0, 0, cellSize, cellSize, true);
+			break;
+		case BODY:
+			g.fill3DRect(0, 0, cellSize - 1, cellSize - 1, true);
+			break;
+		case SUNKEN:
+			g.fill3DRect(0, 0, cellSize, cellSize, false);
+			break;
+		case OVAL:
+			g.fillOval(0, 0, cellSize, cellSize);
+			break;
+		}
+		g.dispose();
+		return image;
+	}
+}
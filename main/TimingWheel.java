@@ -0,0 +1,128 @@
+package main;
+
+import java.util.function.Consumer;
+
+/*
+ * TimingWheel schedules items to expire at a given game tick.
+ * It is a hashed timing wheel: a ring of slots, one per tick modulo the wheel size,
+ * each holding a doubly linked list of timers. Scheduling and cancelling are O(1);
+ * advancing by one tick only visits the timers of one slot. Timers further away than
+ * the wheel size stay in their slot and are skipped until their round comes.
+ * Not thread safe, use it from the game thread. TimingWheelCheck compares it with a list.
+ */
+public final class TimingWheel<T> {
+	//A scheduled item. Keep it to cancel the timer
+	public static final class Timer<T> {
+		private final long deadline;
+		private final T item;
+		private Timer<T> prev, next;
+		private boolean scheduled;
+
+		private Timer(long deadline, T item) {
+			this.deadline = deadline;
+			this.item = item;
+		}
+
+		public long getDeadline() {
+			return deadline;
+		}
+
+		public T getItem() {
+			return item;
+		}
+
+		//Returns true until the timer has expired or is cancelled
+		public boolean isScheduled() {
+			return scheduled;
+		}
+	}
+
+	private final Timer<T>[] slots;
+	private final int mask;
+	private long currentTick;
+	private int size;
+
+	//A wheel with at least the given number of slots (rounded up to a power of 2)
+	@SuppressWarnings("unchecked")
+	public TimingWheel(int slotCount, long startTick) {
+		int n = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+		slots = (Timer<T>[]) new Timer<?>[n];
+		mask = n - 1;
+		currentTick = startTick;
+	}
+
+	//Schedule the item to expire at the given tick. A tick already passed expires on
+	//the next advance
+	public Timer<T> schedule(long tick, T item) {
+		Timer<T> timer = new Timer<T>(Math.max(tick, currentTick + 1), item);
+		int slot = (int) (timer.deadline & mask);
+		timer.next = slots[slot];
+		if(timer.next != null) timer.next.prev = timer;
+		slots[slot] = timer;
+		timer.scheduled = true;
+		++size;
+		return timer;
+	}
+
+	//Cancel a timer that has not expired yet. Returns false if it was not scheduled
+	public boolean cancel(Timer<T> timer) {
+		if(timer == null || !timer.scheduled) return false;
+		unlink(timer);
+		return true;
+	}
+
+	//Move the wheel forward to the given tick, passing the expired items in tick order
+	public void advance(long tick, Consumer<? super T> expired) {
+		while(currentTick < tick) {
+			++currentTick;
+			Timer<T> timer = slots[(int) (currentTick & mask)];
+			while(timer != null) {
+				Timer<T> next = timer.next;
+				if(timer.deadline <= currentTick) {
+					unlink(timer);
+					expired.accept(timer.item);
+					//the handler may have cancelled the next timer, start the slot again
+					if(next != null && !next.scheduled) next = slots[(int) (currentTick & mask)];
+				}
+				timer = next;
+			}
+		}
+	}
+
+	private void unlink(Timer<T> timer) {
+		int slot = (int) (timer.deadline & mask);
+		if(timer.prev != null) timer.prev.next = timer.next;
+		else slots[slot] = timer.next;
+		if(timer.next != null) timer.next.prev = timer.prev;
+		timer.prev = null;
+		timer.next = null;
+		timer.scheduled = false;
+		--size;
+	}
+
+	//Remove every timer and restart at the given tick
+	public void clear(long tick) {
+		for(int i = 0; i < slots.length; ++i) {
+			Timer<T> timer = slots[i];
+			while(timer != null) {
+				Timer<T> next = timer.next;
+				timer.prev = null;
+				timer.next = null;
+				timer.scheduled = false;
+				timer = next;
+			}
+			slots[i] = null;
+		}
+		size = 0;
+		currentTick = tick;
+	}
+
+	public long getCurrentTick() {
+		return currentTick;
+	}
+
+	//Number of timers scheduled
+	public int size() {
+		return size;
+	}
+}
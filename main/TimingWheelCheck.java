@@ -0,0 +1,128 @@
+package main;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/*
+ * TimingWheelCheck plays random schedule, cancel and advance calls on a TimingWheel and
+ * on a plain list of deadlines, and checks that the wheel expires the same timers.
+ * 1. every timer expires on its deadline tick, or on the next advance if the deadline
+ * had already passed, never earlier, never twice, never after being cancelled
+ * 2. the ticks seen by the handler never go back
+ * 3. size() and isScheduled() agree with the list after every call
+ * Deadlines go up to a few rounds of the wheel away, and the handler cancels and
+ * schedules timers too, as PowerUps does. The exit code is 0 on success, 1 on failure.
+ *
+ * Usage: java main.TimingWheelCheck [operations] [seed]
+ */
+public class TimingWheelCheck {
+	private static final int SLOTS = 64;
+	private static final int MAX_REPORTS = 5;
+
+	private final Random random;
+	private final TimingWheel<Integer> wheel = new TimingWheel<Integer>(SLOTS, 0);
+	//the timers scheduled, as the list sees them, and the deadline each one expires on
+	private final List<TimingWheel.Timer<Integer>> live = new ArrayList<TimingWheel.Timer<Integer>>();
+	private final Map<Integer, Long> due = new HashMap<Integer, Long>();
+	private int nextId;
+	private long lastExpired;
+	private long expiredCount;
+	private int failures;
+
+	public static void main(String[] args) {
+		int operations = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+		long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+		boolean passed = new TimingWheelCheck(seed).run(operations);
+		System.exit(passed ? 0 : 1);
+	}
+
+	public TimingWheelCheck(long seed) {
+		random = new Random(seed);
+	}
+
+	public boolean run(int operations) {
+		Consumer<Integer> handler = new Consumer<Integer>() {
+			@Override
+			public void accept(Integer id) {
+				expired(id);
+			}
+		};
+		for(int i = 0; i < operations && failures < MAX_REPORTS; ++i) {
+			int op = random.nextInt(10);
+			if(op < 5) {
+				schedule();
+			}else if(op < 7) {
+				cancel();
+			}else {
+				//mostly a tick or two, now and then more than a round of the wheel
+				long now = wheel.getCurrentTick();
+				long to = now + ((random.nextInt(20) == 0) ? random.nextInt(3 * SLOTS) : random.nextInt(3));
+				wheel.advance(to, handler);
+				if(wheel.getCurrentTick() != to) fail("advanced to " + wheel.getCurrentTick() + ", expected " + to);
+				for(TimingWheel.Timer<Integer> timer : live) {
+					if(due.get(timer.getItem()) <= to) fail("timer " + timer.getItem() + " due at " + due.get(timer.getItem()) + " still scheduled at " + to);
+				}
+			}
+			verify();
+		}
+		System.out.printf("%s timing wheel: %d operations, %d timers expired, tick %d%n",
+				(failures == 0) ? "PASS" : "FAIL", operations, expiredCount, wheel.getCurrentTick());
+		return failures == 0;
+	}
+
+	//A deadline in the past, in this round or a few rounds ahead
+	private void schedule() {
+		long now = wheel.getCurrentTick();
+		long tick = now - 3 + random.nextInt(4 * SLOTS);
+		int id = nextId++;
+		TimingWheel.Timer<Integer> timer = wheel.schedule(tick, id);
+		live.add(timer);
+		due.put(id, Math.max(tick, now + 1));
+	}
+
+	private void cancel() {
+		if(random.nextInt(8) == 0 || live.isEmpty()) {
+			//a timer that is no longer scheduled, or none
+			if(wheel.cancel(null)) fail("cancel(null) returned true");
+			return;
+		}
+		TimingWheel.Timer<Integer> timer = live.remove(random.nextInt(live.size()));
+		due.remove(timer.getItem());
+		if(!wheel.cancel(timer)) fail("cancel of timer " + timer.getItem() + " returned false");
+		if(wheel.cancel(timer)) fail("second cancel of timer " + timer.getItem() + " returned true");
+	}
+
+	private void expired(Integer id) {
+		long now = wheel.getCurrentTick();
+		Long deadline = due.remove(id);
+		++expiredCount;
+		if(deadline == null) {
+			fail("timer " + id + " expired at " + now + " but it was cancelled or already expired");
+		}else if(deadline != now) {
+			fail("timer " + id + " expired at " + now + ", due at " + deadline);
+		}
+		if(now < lastExpired) fail("timer " + id + " expired at " + now + " after a timer at " + lastExpired);
+		lastExpired = now;
+		for(int i = 0; i < live.size(); ++i) {
+			if(live.get(i).getItem().equals(id)) {
+				if(live.get(i).isScheduled()) fail("timer " + id + " is still scheduled in its handler");
+				live.remove(i);
+				break;
+			}
+		}
+		//the handler cancels and schedules timers, one of them maybe in this very slot
+		if(random.nextInt(4) == 0) cancel();
+		if(random.nextInt(4) == 0) schedule();
+	}
+
+	private void verify() {
+		if(wheel.size() != live.size()) fail("size " + wheel.size() + ", expected " + live.size());
+		for(TimingWheel.Timer<Integer> timer : live) {
+			if(!timer.isScheduled()) fail("timer " + timer.getItem() + " is not scheduled");
+		}
+	}
+
+	private void fail(String problem) {
+		if(++failures <= MAX_REPORTS) System.out.println("  tick " + wheel.getCurrentTick() + ": " + problem);
+	}
+}
@@ -0,0 +1,59 @@
+package main;
+
+import jdk.incubator.vector.*;
+
+/*
+ * VectorHeadKernel does the HeadKernel lookup a vector of heads at a time: the bounds
+ * checks are lane compares, the cell numbers one multiply-add and the grid lookups a
+ * masked gather, so the off-board heads are never read.
+ * It lives in its own source directory, so that "javac main/*.java" builds the game
+ * without the incubator module. To add it, compile it on top of the game classes:
+ *   javac --add-modules jdk.incubator.vector -cp <classes> -d <classes> vector/main/VectorHeadKernel.java
+ * and run with "java --add-modules jdk.incubator.vector". HeadKernel.create() loads it by
+ * name and falls back to the scalar loop when the class or the module is missing.
+ */
+final class VectorHeadKernel extends HeadKernel {
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+	@Override
+	public void lookup(int n, int[] headX, int[] headY, int columns, int rows,
+			int[] grid, int[] cells, int[] values) {
+		IntVector none = IntVector.broadcast(SPECIES, -1);
+		int bound = SPECIES.loopBound(n);
+		int i = 0;
+		for(; i < bound; i += SPECIES.length()) {
+			IntVector x = IntVector.fromArray(SPECIES, headX, i);
+			IntVector y = IntVector.fromArray(SPECIES, headY, i);
+			VectorMask<Integer> inside = x.compare(VectorOperators.GE, 0)
+					.and(x.compare(VectorOperators.LT, columns))
+					.and(y.compare(VectorOperators.GE, 0))
+					.and(y.compare(VectorOperators.LT, rows));
+			IntVector cell = y.mul(columns).add(x);
+			none.blend(cell, inside).intoArray(cells, i);
+			//the lanes outside the mask are not read and come back as 0
+			IntVector.fromArray(SPECIES, grid, 0, cells, i, inside).intoArray(values, i);
+		}
+		//the last heads, fewer than a vector
+		if(i < n) {
+			tailLookup(i, n, headX, headY, columns, rows, grid, cells, values);
+		}
+	}
+
+	private void tailLookup(int from, int n, int[] headX, int[] headY, int columns, int rows,
+			int[] grid, int[] cells, int[] values) {
+		for(int i = from; i < n; ++i) {
+			int x = headX[i], y = headY[i];
+			if(x >= 0 && x < columns && y >= 0 && y < rows) {
+				cells[i] = y * columns + x;
+				values[i] = grid[cells[i]];
+			}else {
+				cells[i] = -1;
+				values[i] = 0;
+			}
+		}
+	}
+
+	public String toString() {
+		return "vector x" + SPECIES.length();
+	}
+}